@@ -0,0 +1,111 @@
+package LibrarySystem;
+
+import LibrarySystem.models.*;
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.auth.PasswordHasher;
+import LibrarySystem.books.BookService;
+import LibrarySystem.transactions.TransactionService;
+import LibrarySystem.persistence.Journal;
+import LibrarySystem.persistence.StartupLoader;
+
+import java.util.*;
+import java.util.concurrent.Future;
+
+// The services and journal shared by every session in the process: the
+// console, each terminal connection and the HTTP API all work on one
+// Library. Sessions hold no lock across each other; the services do their
+// own locking per borrower and per book.
+public class Library {
+    private static final String JOURNAL_FILE = "journal.dat";
+    private static final int SNAPSHOT_EVERY_EVENTS = 10000;
+
+    private final AuthService authService;
+    private final BookService bookService;
+    private final TransactionService transactionService;
+    private final Journal journal;
+    private final Thread passwordMigration;
+
+    public static Library open() {
+        return open(PasswordHasher.DEFAULT_ITERATIONS);
+    }
+    
+    // Loads the data files from the working directory and replays the journal.
+    // passwordIterations is the PBKDF2 work factor for passwords hashed from now on.
+    public static Library open(int passwordIterations) {
+        // Opening the journal finishes any snapshot a crash left half installed
+        Journal journal = new Journal(JOURNAL_FILE);
+
+        // Parse the four data files concurrently, then build the services and their indexes
+        StartupLoader loader = new StartupLoader();
+        Future<List<User>> users = loader.submit("users", AuthService::readUsers);
+        Future<List<Book>> books = loader.submit("books", BookService::readBooks);
+        Future<List<BorrowingRecord>> borrowing = loader.submit("borrowing", TransactionService::readBorrowingRecords);
+        Future<List<FineRecord>> fines = loader.submit("fines", TransactionService::readFineRecords);
+
+        AuthService authService = new AuthService(loader.get(users));
+        authService.setPasswordIterations(passwordIterations);
+        BookService bookService = new BookService(loader.get(books));
+        TransactionService transactionService = new TransactionService(bookService, loader.get(borrowing), loader.get(fines));
+        System.out.println(loader.report());
+        return new Library(authService, bookService, transactionService, journal);
+    }
+
+    private Library(AuthService authService, BookService bookService, TransactionService transactionService, Journal journal) {
+        this.authService = authService;
+        this.bookService = bookService;
+        this.transactionService = transactionService;
+        this.journal = journal;
+        replayJournal();
+        this.passwordMigration = startPasswordMigration();
+    }
+    
+    // Plaintext passwords left in users.txt are hashed in the background, one
+    // at a time, so they are gone by the next snapshot even for users who never log in
+    private Thread startPasswordMigration() {
+        Thread thread = new Thread(authService::hashPlaintextPasswords, "password-migration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+    // Replays changes made since the last snapshot, then journals every further change
+    private void replayJournal() {
+        journal.replay((type, fields) -> {
+            authService.applyJournalEvent(type, fields);
+            bookService.applyJournalEvent(type, fields);
+            transactionService.applyJournalEvent(type, fields);
+        });
+        authService.setJournal(journal);
+        bookService.setJournal(journal);
+        transactionService.setJournal(journal);
+        journal.setSnapshotTask(this::saveAllData, SNAPSHOT_EVERY_EVENTS);
+    }
+
+    public AuthService getAuthService() { return authService; }
+    public BookService getBookService() { return bookService; }
+    public TransactionService getTransactionService() { return transactionService; }
+
+    // Rewrites the data files and resets the journal, then stops journaling
+    public void close() {
+        passwordMigration.interrupt();
+        try {
+            passwordMigration.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.snapshot();
+        journal.close();
+    }
+
+    // Stages full snapshots of every data file, then the checkpoint swaps them in together
+    private void saveAllData() {
+        boolean usersSaved = authService.saveUsers();
+        boolean booksSaved = bookService.saveBooks();
+        boolean transactionsSaved = transactionService.saveData();
+        if (usersSaved && booksSaved && transactionsSaved) {
+            journal.checkpoint(AuthService.USERS_FILE, BookService.BOOKS_FILE,
+                TransactionService.BORROWING_FILE, TransactionService.FINES_FILE);
+        }
+    }
+}
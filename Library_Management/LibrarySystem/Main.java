@@ -2,85 +2,229 @@ package LibrarySystem;
 
 import LibrarySystem.models.*;
 import LibrarySystem.auth.AuthService;
-import LibrarySystem.books.BookService;
+import LibrarySystem.auth.PasswordHasher;
+import LibrarySystem.books.*;
 import LibrarySystem.transactions.TransactionService;
 import LibrarySystem.reports.ReportService;
+import LibrarySystem.metrics.*;
+import LibrarySystem.server.ApiServer;
+import LibrarySystem.server.TerminalServer;
 import LibrarySystem.users.*;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 public class Main {
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int CATALOG_PAGE_SIZE = 20;
+    private static final int DEFAULT_HTTP_PORT = 8080;
+    private static final int DEFAULT_TERMINAL_PORT = 2323;
+    private static final int DEFAULT_METRICS_SECONDS = 60;
+    private static final String METRICS_TEXT_FILE = "metrics.txt";
+    private static final String METRICS_JSON_FILE = "metrics.json";
+    private static final int TERMINAL_IDLE_MINUTES = 15;
+    private static final int MAX_TERMINAL_SESSIONS = 100;
     
     private AuthService authService;
     private BookService bookService;
     private TransactionService transactionService;
     private ReportService reportService;
     private Scanner scanner;
+    private PrintStream out;
+    // Titles that ran out since an admin last looked, in the order they did
+    private final Set<String> soldOutIsbns = Collections.synchronizedSet(new LinkedHashSet<>());
     
-    public Main() {
-        this.authService = new AuthService();
-        this.bookService = new BookService();
-        this.transactionService = new TransactionService(bookService);
-        this.reportService = new ReportService(bookService, transactionService, authService);
-        this.scanner = new Scanner(System.in);
+    // One session: the console, or one connected terminal
+    public Main(Library library, Scanner scanner, PrintStream out) {
+        this.authService = library.getAuthService();
+        this.bookService = library.getBookService();
+        this.transactionService = library.getTransactionService();
+        this.reportService = new ReportService(bookService, transactionService, authService, out);
+        this.scanner = scanner;
+        this.out = out;
     }
     
+    // Only titles that run out while the admin is logged in are reported
+    private LowStockListener watchStock() {
+        LowStockListener listener = new LowStockListener() {
+            @Override
+            public void onLowStock(Book book, int availableQuantity) {
+                soldOutIsbns.add(book.getIsbn());
+            }
+            
+            @Override
+            public void onRestocked(Book book, int availableQuantity) {
+                soldOutIsbns.remove(book.getIsbn());
+            }
+        };
+        bookService.addLowStockListener(0, listener);
+        return listener;
+    }
+    
+    // java LibrarySystem.Main                    one console session
+    // java LibrarySystem.Main --http[=port]      HTTP/JSON API (see ApiServer)
+    // java LibrarySystem.Main --terminal[=port]  desk terminals over TCP
+    // --http and --terminal may be given together; both serve until stopped.
+    // --metrics[=seconds] also dumps operation latencies to metrics.txt and
+    // metrics.json that often; they are always readable over JMX.
+    // --password-iterations=N sets the PBKDF2 work factor for new password
+    // hashes; existing ones are rehashed to it at their next login.
     public static void main(String[] args) {
-        Main app = new Main();
-        app.start();
+        int httpPort = -1;
+        int terminalPort = -1;
+        int metricsSeconds = -1;
+        int passwordIterations = PasswordHasher.DEFAULT_ITERATIONS;
+        for (String arg : args) {
+            if (arg.startsWith("--http")) {
+                httpPort = optionValue(arg, DEFAULT_HTTP_PORT);
+            } else if (arg.startsWith("--terminal")) {
+                terminalPort = optionValue(arg, DEFAULT_TERMINAL_PORT);
+            } else if (arg.startsWith("--metrics")) {
+                metricsSeconds = optionValue(arg, DEFAULT_METRICS_SECONDS);
+            } else if (arg.startsWith("--password-iterations=")) {
+                passwordIterations = optionValue(arg, PasswordHasher.DEFAULT_ITERATIONS);
+            }
+        }
+        
+        Metrics.registerMBeans();
+        if (metricsSeconds > 0) {
+            // Dumps once more as the process exits, however it is stopped
+            MetricsReporter metricsReporter = new MetricsReporter(METRICS_TEXT_FILE, METRICS_JSON_FILE, metricsSeconds);
+            metricsReporter.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(metricsReporter::stop));
+        }
+        Library library = Library.open(passwordIterations);
+        if (httpPort < 0 && terminalPort < 0) {
+            new Main(library, new Scanner(System.in), System.out).start();
+            library.close();
+        } else {
+            serve(library, httpPort, terminalPort);
+        }
+    }
+    
+    private static int optionValue(String arg, int defaultValue) {
+        int equals = arg.indexOf('=');
+        return equals < 0 ? defaultValue : Integer.parseInt(arg.substring(equals + 1));
+    }
+    
+    // Serves until Enter is pressed or the process is stopped, then snapshots
+    // the data files as a console logout does
+    private static void serve(Library library, int httpPort, int terminalPort) {
+        ApiServer apiServer = null;
+        TerminalServer terminalServer = null;
+        try {
+            if (httpPort >= 0) {
+                apiServer = new ApiServer(library.getAuthService(), library.getBookService(), library.getTransactionService());
+                apiServer.start(new InetSocketAddress(httpPort));
+                System.out.println("API listening on http://localhost:" + apiServer.getPort() + "/api/ (" + apiServer.describeExecutor() + ")");
+            }
+            if (terminalPort >= 0) {
+                // A terminal returns to the welcome screen after each logout, until it hangs up
+                terminalServer = new TerminalServer((in, out) -> {
+                    Main session = new Main(library, in, out);
+                    while (true) {
+                        session.start();
+                    }
+                }, TimeUnit.MINUTES.toMillis(TERMINAL_IDLE_MINUTES), MAX_TERMINAL_SESSIONS);
+                terminalServer.start(new InetSocketAddress(terminalPort));
+                System.out.println("Terminals connect on port " + terminalServer.getPort() +
+                    " (up to " + MAX_TERMINAL_SESSIONS + ", idle timeout " + TERMINAL_IDLE_MINUTES + " minutes)");
+            }
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            stopServing(library, apiServer, terminalServer);
+            return;
+        }
+        System.out.println("Press Enter to stop.");
+        
+        ApiServer startedApi = apiServer;
+        TerminalServer startedTerminals = terminalServer;
+        Thread shutdownHook = new Thread(() -> stopServing(library, startedApi, startedTerminals));
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        if (!new Scanner(System.in).hasNextLine()) {
+            // No console, e.g. run as a service; the hook saves on shutdown
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        stopServing(library, apiServer, terminalServer);
+    }
+    
+    private static void stopServing(Library library, ApiServer apiServer, TerminalServer terminalServer) {
+        if (terminalServer != null) {
+            terminalServer.stop();
+        }
+        if (apiServer != null) {
+            apiServer.stop(2);
+        }
+        library.close();
+        System.out.println("Stopped; data saved.");
     }
     
     public void start() {
-        System.out.println("==============================================");
-        System.out.println("   Welcome to Library Management System");
-        System.out.println("==============================================");
+        out.println("==============================================");
+        out.println("   Welcome to Library Management System");
+        out.println("==============================================");
         
         User currentUser = authenticate();
         if (currentUser != null) {
             if (currentUser.getRole() == UserRole.ADMIN) {
                 Admin admin = new Admin(currentUser);
-                adminMenu(admin);
+                LowStockListener stockWatch = watchStock();
+                try {
+                    adminMenu(admin);
+                } finally {
+                    bookService.removeLowStockListener(stockWatch);
+                }
             } else {
                 Borrower borrower = new Borrower(currentUser);
                 borrowerMenu(borrower);
             }
         }
-        
-        saveAllData();
-        scanner.close();
     }
     
     private User authenticate() {
-        System.out.println("\n--- Authentication ---");
-        System.out.print("Enter Email ID: ");
+        out.println("\n--- Authentication ---");
+        out.print("Enter Email ID: ");
         String email = scanner.nextLine().trim();
         
-        System.out.print("Enter Password: ");
+        out.print("Enter Password: ");
         String password = scanner.nextLine().trim();
         
         User user = authService.authenticate(email, password);
         if (user != null) {
-            System.out.println("\nAuthentication successful!");
-            System.out.println("Welcome, " + user.getName() + "!");
+            out.println("\nAuthentication successful!");
+            out.println("Welcome, " + user.getName() + "!");
             return user;
         } else {
-            System.out.println("Invalid credentials. Access denied.");
+            out.println("Invalid credentials. Access denied.");
             return null;
         }
     }
     
     private void adminMenu(Admin admin) {
+        showNewlyOverdueLoans();
+        showOutOfStock();
         while (true) {
-            System.out.println("\n=== ADMIN MENU ===");
-            System.out.println("1. Book Inventory Management");
-            System.out.println("2. User Management");
-            System.out.println("3. Reports");
-            System.out.println("4. Fine Management");
-            System.out.println("5. Logout");
-            System.out.print("Select option: ");
+            showStockAlerts();
+            out.println("\n=== ADMIN MENU ===");
+            out.println("1. Book Inventory Management");
+            out.println("2. User Management");
+            out.println("3. Reports");
+            out.println("4. Fine Management");
+            out.println("5. Logout");
+            out.println("6. Process Book Drop Returns");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
@@ -98,10 +242,13 @@ public class Main {
                     fineManagementMenu();
                     break;
                 case 5:
-                    System.out.println("Logging out...");
+                    out.println("Logging out...");
                     return;
+                case 6:
+                    processBookDrop();
+                    break;
                 default:
-                    System.out.println("Invalid option. Please try again.");
+                    out.println("Invalid option. Please try again.");
             }
         }
     }
@@ -109,26 +256,26 @@ public class Main {
     private void borrowerMenu(Borrower borrower) {
         while (true) {
             User user = borrower.getUser();
-            System.out.println("\n=== BORROWER MENU ===");
-            System.out.println("Current Security Deposit: Rs. " + user.getSecurityDeposit());
-            System.out.println("Account Balance: Rs. " + user.getAccountBalance());
-            System.out.println("Books Currently Borrowed: " + 
+            out.println("\n=== BORROWER MENU ===");
+            out.println("Current Security Deposit: Rs. " + Money.format(user.getSecurityDeposit()));
+            out.println("Account Balance: Rs. " + Money.format(user.getAccountBalance()));
+            out.println("Books Currently Borrowed: " + 
                 transactionService.getCurrentBorrowedBooks(user.getEmail()).size() + "/3");
-            double unpaidFines = transactionService.getTotalUnpaidFines(user.getEmail());
+            long unpaidFines = transactionService.getTotalUnpaidFines(user.getEmail());
             if (unpaidFines > 0) {
-                System.out.println("Unpaid Fines: Rs. " + unpaidFines);
+                out.println("Unpaid Fines: Rs. " + Money.format(unpaidFines));
             }
-            System.out.println();
-            System.out.println("1. View Available Books");
-            System.out.println("2. Search Books");
-            System.out.println("3. Borrow Books");
-            System.out.println("4. Return Books");
-            System.out.println("5. Extend Book Tenure");
-            System.out.println("6. Report Lost Book/Card");
-            System.out.println("7. View My Reports");
-            System.out.println("8. Account Management");
-            System.out.println("9. Logout");
-            System.out.print("Select option: ");
+            out.println();
+            out.println("1. View Available Books");
+            out.println("2. Search Books");
+            out.println("3. Borrow Books");
+            out.println("4. Return Books");
+            out.println("5. Extend Book Tenure");
+            out.println("6. Report Lost Book/Card");
+            out.println("7. View My Reports");
+            out.println("8. Account Management");
+            out.println("9. Logout");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
@@ -158,10 +305,10 @@ public class Main {
                     accountManagementMenu(borrower);
                     break;
                 case 9:
-                    System.out.println("Logging out...");
+                    out.println("Logging out...");
                     return;
                 default:
-                    System.out.println("Invalid option. Please try again.");
+                    out.println("Invalid option. Please try again.");
             }
         }
     }
@@ -169,15 +316,15 @@ public class Main {
     // Book Inventory Management Methods
     private void bookInventoryMenu() {
         while (true) {
-            System.out.println("\n=== BOOK INVENTORY MANAGEMENT ===");
-            System.out.println("1. Add Book");
-            System.out.println("2. Modify Book Details");
-            System.out.println("3. Delete Book");
-            System.out.println("4. View All Books (Sorted by Name)");
-            System.out.println("5. View All Books (Sorted by Quantity)");
-            System.out.println("6. Search Book");
-            System.out.println("7. Back to Main Menu");
-            System.out.print("Select option: ");
+            out.println("\n=== BOOK INVENTORY MANAGEMENT ===");
+            out.println("1. Add Book");
+            out.println("2. Modify Book Details");
+            out.println("3. Delete Book");
+            out.println("4. View All Books (Sorted by Name)");
+            out.println("5. View All Books (Sorted by Quantity)");
+            out.println("6. Search Book");
+            out.println("7. Back to Main Menu");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
@@ -203,141 +350,161 @@ public class Main {
                 case 7:
                     return;
                 default:
-                    System.out.println("Invalid option. Please try again.");
+                    out.println("Invalid option. Please try again.");
             }
         }
     }
     
     private void addBook() {
-        System.out.println("\n--- Add New Book ---");
-        System.out.print("Enter ISBN: ");
+        out.println("\n--- Add New Book ---");
+        out.print("Enter ISBN: ");
         String isbn = scanner.nextLine().trim();
         
         if (bookService.getBookByIsbn(isbn) != null) {
-            System.out.println("Book with this ISBN already exists!");
+            out.println("Book with this ISBN already exists!");
             return;
         }
         
-        System.out.print("Enter Book Title: ");
+        out.print("Enter Book Title: ");
         String title = scanner.nextLine().trim();
         
-        System.out.print("Enter Author: ");
+        out.print("Enter Author: ");
         String author = scanner.nextLine().trim();
         
-        System.out.print("Enter Available Quantity: ");
+        out.print("Enter Available Quantity: ");
         int quantity = getIntInput();
         
-        System.out.print("Enter Book Cost (Rs): ");
-        double cost = getDoubleInput();
+        out.print("Enter Book Cost (Rs): ");
+        long cost = getMoneyInput();
         
         if (bookService.addBook(isbn, title, author, quantity, cost)) {
-            System.out.println("Book added successfully!");
+            out.println("Book added successfully!");
         } else {
-            System.out.println("Failed to add book.");
+            out.println("Failed to add book.");
         }
     }
     
     private void modifyBook() {
-        System.out.println("\n--- Modify Book Details ---");
-        System.out.print("Enter ISBN of book to modify: ");
+        out.println("\n--- Modify Book Details ---");
+        out.print("Enter ISBN of book to modify: ");
         String isbn = scanner.nextLine().trim();
         
         Book book = bookService.getBookByIsbn(isbn);
         if (book == null) {
-            System.out.println("Book not found!");
+            out.println("Book not found!");
             return;
         }
         
-        System.out.println("Current Details: " + book);
-        System.out.println("1. Modify Title");
-        System.out.println("2. Modify Author");
-        System.out.println("3. Modify Available Quantity");
-        System.out.println("4. Modify Cost");
-        System.out.print("Select option: ");
+        out.println("Current Details: " + book);
+        out.println("1. Modify Title");
+        out.println("2. Modify Author");
+        out.println("3. Modify Available Quantity");
+        out.println("4. Modify Cost");
+        out.print("Select option: ");
         
         int choice = getIntInput();
         
         switch (choice) {
             case 1:
-                System.out.print("Enter new title: ");
-                book.setTitle(scanner.nextLine().trim());
+                out.print("Enter new title: ");
+                bookService.updateTitle(book, scanner.nextLine().trim());
                 break;
             case 2:
-                System.out.print("Enter new author: ");
-                book.setAuthor(scanner.nextLine().trim());
+                out.print("Enter new author: ");
+                bookService.updateAuthor(book, scanner.nextLine().trim());
                 break;
             case 3:
-                System.out.print("Enter new quantity: ");
-                book.setAvailableQuantity(getIntInput());
+                out.print("Enter new quantity: ");
+                bookService.updateQuantity(book, getIntInput());
                 break;
             case 4:
-                System.out.print("Enter new cost: ");
-                book.setCost(getDoubleInput());
+                out.print("Enter new cost: ");
+                bookService.updateCost(book, getMoneyInput());
                 break;
             default:
-                System.out.println("Invalid option.");
+                out.println("Invalid option.");
                 return;
         }
         
-        System.out.println("Book details updated successfully!");
+        out.println("Book details updated successfully!");
     }
     
     private void deleteBook() {
-        System.out.println("\n--- Delete Book ---");
-        System.out.print("Enter ISBN of book to delete: ");
+        out.println("\n--- Delete Book ---");
+        out.print("Enter ISBN of book to delete: ");
         String isbn = scanner.nextLine().trim();
         
         Book book = bookService.getBookByIsbn(isbn);
         if (book == null) {
-            System.out.println("Book not found!");
+            out.println("Book not found!");
             return;
         }
         
         // Check if book is currently borrowed
         BorrowingRecord currentRecord = transactionService.getCurrentBorrowingRecord(isbn);
         if (currentRecord != null) {
-            System.out.println("Cannot delete book. It is currently borrowed by someone.");
+            out.println("Cannot delete book. It is currently borrowed by someone.");
             return;
         }
         
-        System.out.println("Book to delete: " + book);
-        System.out.print("Are you sure? (y/n): ");
+        out.println("Book to delete: " + book);
+        out.print("Are you sure? (y/n): ");
         String confirm = scanner.nextLine().trim().toLowerCase();
         
         if (confirm.equals("y") || confirm.equals("yes")) {
             if (bookService.deleteBook(isbn)) {
-                System.out.println("Book deleted successfully!");
+                out.println("Book deleted successfully!");
             } else {
-                System.out.println("Failed to delete book.");
+                out.println("Failed to delete book.");
             }
         }
     }
     
     private void viewBooksSortedByName() {
-        System.out.println("\n--- Books Sorted by Name ---");
-        List<Book> books = bookService.getBooksSortedByTitle();
-        for (Book book : books) {
-            System.out.println(book);
-        }
+        out.println("\n--- Books Sorted by Name ---");
+        browseCatalog(CatalogOrder.TITLE);
     }
     
     private void viewBooksSortedByQuantity() {
-        System.out.println("\n--- Books Sorted by Available Quantity ---");
-        List<Book> books = bookService.getBooksSortedByQuantity();
-        for (Book book : books) {
-            System.out.println(book);
+        out.println("\n--- Books Sorted by Available Quantity ---");
+        browseCatalog(CatalogOrder.QUANTITY);
+    }
+    
+    // Shows the catalog a page at a time straight from the sorted view
+    private void browseCatalog(CatalogOrder order) {
+        CatalogPage page = bookService.getCatalogPage(order, 1, CATALOG_PAGE_SIZE);
+        while (true) {
+            for (Book book : page.getBooks()) {
+                out.println(book);
+            }
+            if (!page.hasNext() && !page.hasPrevious()) {
+                return;
+            }
+            out.println("Page " + page.getPageNumber() + " of " + page.getPageCount());
+            out.print("n = next, p = previous, page number to jump, anything else to go back: ");
+            String choice = scanner.nextLine().trim().toLowerCase();
+            if (choice.equals("n") && page.hasNext()) {
+                page = bookService.getNextPage(page);
+            } else if (choice.equals("p") && page.hasPrevious()) {
+                page = bookService.getPreviousPage(page);
+            } else if (choice.matches("\\d{1,9}")) {
+                page = bookService.getCatalogPage(order, Integer.parseInt(choice), CATALOG_PAGE_SIZE);
+            } else if (!choice.equals("n") && !choice.equals("p")) {
+                return;
+            }
         }
     }
     
     private void searchBooksMenu() {
-        System.out.println("\n--- Search Books ---");
-        System.out.println("1. Search by Title");
-        System.out.println("2. Search by ISBN");
-        System.out.println("3. Search by Author");
-        System.out.print("Select option: ");
+        out.println("\n--- Search Books ---");
+        out.println("1. Search by Title");
+        out.println("2. Search by ISBN");
+        out.println("3. Search by Author");
+        out.println("4. Search by Keywords (Title and Author)");
+        out.print("Select option: ");
         
         int choice = getIntInput();
-        System.out.print("Enter search term: ");
+        out.print("Enter search term: ");
         String searchTerm = scanner.nextLine().trim();
         
         List<Book> results = new ArrayList<>();
@@ -353,17 +520,20 @@ public class Main {
             case 3:
                 results = bookService.searchBooksByAuthor(searchTerm);
                 break;
+            case 4:
+                results = bookService.searchBooks(searchTerm);
+                break;
             default:
-                System.out.println("Invalid option.");
+                out.println("Invalid option.");
                 return;
         }
         
         if (results.isEmpty()) {
-            System.out.println("No books found matching your search.");
+            out.println("No books found matching your search.");
         } else {
-            System.out.println("\n--- Search Results ---");
+            out.println("\n--- Search Results ---");
             for (Book result : results) {
-                System.out.println(result);
+                out.println(result);
             }
         }
     }
@@ -371,16 +541,16 @@ public class Main {
     // User Management Methods
     private void userManagementMenu() {
         while (true) {
-            System.out.println("\n=== USER MANAGEMENT ===");
-            System.out.println("1. Add Admin");
-            System.out.println("2. Add Borrower");
-            System.out.println("3. View All Users");
-            System.out.println("4. Modify User");
-            System.out.println("5. Promote User to Admin");
-            System.out.println("6. Delete User");
-            System.out.println("7. Add Money to User Account");
-            System.out.println("8. Back to Main Menu");
-            System.out.print("Select option: ");
+            out.println("\n=== USER MANAGEMENT ===");
+            out.println("1. Add Admin");
+            out.println("2. Add Borrower");
+            out.println("3. View All Users");
+            out.println("4. Modify User");
+            out.println("5. Promote User to Admin");
+            out.println("6. Delete User");
+            out.println("7. Add Money to User Account");
+            out.println("8. Back to Main Menu");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
@@ -409,163 +579,197 @@ public class Main {
                 case 8:
                     return;
                 default:
-                    System.out.println("Invalid option. Please try again.");
+                    out.println("Invalid option. Please try again.");
             }
         }
     }
     
     private void addUser(UserRole role) {
-        System.out.println("\n--- Add " + role + " ---");
-        System.out.print("Enter Email ID: ");
+        out.println("\n--- Add " + role + " ---");
+        out.print("Enter Email ID: ");
         String email = scanner.nextLine().trim();
         
         if (authService.getUserByEmail(email) != null) {
-            System.out.println("User with this email already exists!");
+            out.println("User with this email already exists!");
             return;
         }
         
-        System.out.print("Enter Name: ");
+        out.print("Enter Name: ");
         String name = scanner.nextLine().trim();
         
-        System.out.print("Enter Password: ");
+        out.print("Enter Password: ");
         String password = scanner.nextLine().trim();
         
-        double securityDeposit = 0;
+        long securityDeposit = 0;
         if (role == UserRole.BORROWER) {
-            securityDeposit = 1500.0; // Initial deposit
-            System.out.println("Initial security deposit of Rs. 1500 will be collected.");
+            securityDeposit = Money.ofRupees(1500); // Initial deposit
+            out.println("Initial security deposit of Rs. 1500 will be collected.");
         }
         
         if (authService.registerUser(email, name, password, role, securityDeposit)) {
-            System.out.println(role + " added successfully!");
+            out.println(role + " added successfully!");
         } else {
-            System.out.println("Failed to add user.");
+            out.println("Failed to add user.");
         }
     }
     
     private void viewAllUsers() {
-        System.out.println("\n--- All Users ---");
+        out.println("\n--- All Users ---");
         Map<String, User> users = authService.getAllUsers();
         for (User user : users.values()) {
-            System.out.println(user);
+            out.println(user);
         }
     }
     
     private void modifyUser() {
-        System.out.println("\n--- Modify User ---");
-        System.out.print("Enter Email ID of user to modify: ");
+        out.println("\n--- Modify User ---");
+        out.print("Enter Email ID of user to modify: ");
         String email = scanner.nextLine().trim();
         
         User user = authService.getUserByEmail(email);
         if (user == null) {
-            System.out.println("User not found!");
+            out.println("User not found!");
             return;
         }
         
-        System.out.println("Current Details: " + user);
-        System.out.println("1. Modify Name");
-        System.out.println("2. Modify Password");
-        System.out.println("3. Modify Security Deposit (Borrowers only)");
-        System.out.print("Select option: ");
+        out.println("Current Details: " + user);
+        out.println("1. Modify Name");
+        out.println("2. Modify Password");
+        out.println("3. Modify Security Deposit (Borrowers only)");
+        out.print("Select option: ");
         
         int choice = getIntInput();
         
         switch (choice) {
             case 1:
-                System.out.print("Enter new name: ");
+                out.print("Enter new name: ");
                 user.setName(scanner.nextLine().trim());
                 break;
             case 2:
-                System.out.print("Enter new password: ");
-                user.setPassword(scanner.nextLine().trim());
+                out.print("Enter new password: ");
+                authService.setPassword(user, scanner.nextLine().trim());
                 break;
             case 3:
                 if (user.getRole() == UserRole.BORROWER) {
-                    System.out.print("Enter new security deposit: ");
-                    user.setSecurityDeposit(getDoubleInput());
+                    out.print("Enter new security deposit: ");
+                    user.setSecurityDeposit(getMoneyInput());
                 } else {
-                    System.out.println("Security deposit only applicable for borrowers.");
+                    out.println("Security deposit only applicable for borrowers.");
                 }
                 break;
             default:
-                System.out.println("Invalid option.");
+                out.println("Invalid option.");
                 return;
         }
         
-        System.out.println("User details updated successfully!");
+        authService.updateUser(user);
+        out.println("User details updated successfully!");
     }
     
     // Borrowing Methods
     private void borrowBooksMenu(Borrower borrower) {
         if (!borrower.canBorrowBooks()) {
-            System.out.println("Cannot borrow books. Either insufficient security deposit (min Rs. 500) or invalid role.");
+            out.println("Cannot borrow books. Either insufficient security deposit (min Rs. 500) or invalid role.");
             return;
         }
         
-        List<BorrowingRecord> currentBorrowedBooks = transactionService.getCurrentBorrowedBooks(borrower.getUser().getEmail());
+        String email = borrower.getUser().getEmail();
+        List<BorrowingRecord> currentBorrowedBooks = transactionService.getCurrentBorrowedBooks(email);
         if (currentBorrowedBooks.size() >= 3) {
-            System.out.println("You have already borrowed the maximum number of books (3).");
+            out.println("You have already borrowed the maximum number of books (3).");
             return;
         }
         
-        System.out.print("Enter ISBN or Book Title to borrow: ");
-        String searchTerm = scanner.nextLine().trim();
-        
-        Book book = bookService.findBook(searchTerm);
-        if (book == null) {
-            System.out.println("Book not found!");
+        // Fill the cart, then borrow it in one go
+        List<Book> cart = new ArrayList<>();
+        List<String> isbns = new ArrayList<>();
+        int slotsLeft = 3 - currentBorrowedBooks.size();
+        while (cart.size() < slotsLeft) {
+            out.print("Enter ISBN or Book Title to add to cart (blank to checkout): ");
+            String searchTerm = scanner.nextLine().trim();
+            if (searchTerm.isEmpty()) {
+                break;
+            }
+            
+            Book book = bookService.findBook(searchTerm);
+            if (book == null) {
+                out.println("Book not found!");
+            } else if (isbns.contains(book.getIsbn())) {
+                out.println("This book is already in your cart.");
+            } else {
+                cart.add(book);
+                isbns.add(book.getIsbn());
+                out.println("Added to cart: " + book.getTitle() + " (" + cart.size() + "/" + slotsLeft + ")");
+            }
+        }
+        if (cart.isEmpty()) {
+            out.println("Cart is empty.");
             return;
         }
         
-        BorrowResult result = transactionService.borrowBookWithChecks(borrower.getUser().getEmail(), book.getIsbn(), authService);
+        List<BorrowResult> results = transactionService.borrowBatch(email, isbns);
         
-        switch (result) {
-            case SUCCESS:
-                System.out.println("Book borrowed successfully!");
-                System.out.println("Book: " + book.getTitle());
-                System.out.println("Due date: " + LocalDate.now().plusDays(15).format(DATE_FORMAT));
-                break;
-            case MAX_BOOKS_REACHED:
-                System.out.println("You have already borrowed the maximum number of books (3).");
-                break;
-            case BOOK_NOT_AVAILABLE:
-                System.out.println("Book is not available for borrowing.");
-                break;
-            case ALREADY_BORROWED:
-                System.out.println("You have already borrowed this book.");
-                break;
-            case HAS_UNPAID_FINES:
-                System.out.println("You have unpaid fines. Please pay them before borrowing books.");
-                double unpaidAmount = transactionService.getTotalUnpaidFines(borrower.getUser().getEmail());
-                System.out.println("Total unpaid fines: Rs. " + unpaidAmount);
-                System.out.println("Account balance: Rs. " + borrower.getUser().getAccountBalance());
-                
-                if (borrower.getUser().getAccountBalance() >= unpaidAmount) {
-                    System.out.print("Would you like to pay fines from your account? (y/n): ");
-                    String choice = scanner.nextLine().trim().toLowerCase();
-                    if (choice.equals("y")) {
-                        if (transactionService.payAllUnpaidFinesWithAccount(borrower.getUser().getEmail(), authService)) {
-                            System.out.println("All fines paid successfully from account!");
-                            // Try borrowing again
-                            if (transactionService.borrowBook(borrower.getUser().getEmail(), book.getIsbn())) {
-                                System.out.println("Book borrowed successfully!");
-                                System.out.println("Book: " + book.getTitle());
-                                System.out.println("Due date: " + LocalDate.now().plusDays(15).format(DATE_FORMAT));
-                            }
-                        } else {
-                            System.out.println("Payment failed. Please try again.");
-                        }
-                    }
-                } else {
-                    System.out.print("Would you like to add money to your account? (y/n): ");
-                    String choice = scanner.nextLine().trim().toLowerCase();
-                    if (choice.equals("y")) {
-                        addMoneyToAccount(borrower);
+        if (results.get(0) == BorrowResult.HAS_UNPAID_FINES) {
+            out.println("You have unpaid fines. Please pay them before borrowing books.");
+            long unpaidAmount = transactionService.getTotalUnpaidFines(email);
+            out.println("Total unpaid fines: Rs. " + Money.format(unpaidAmount));
+            out.println("Account balance: Rs. " + Money.format(borrower.getUser().getAccountBalance()));
+            
+            if (borrower.getUser().getAccountBalance() >= unpaidAmount) {
+                out.print("Would you like to pay fines from your account? (y/n): ");
+                String choice = scanner.nextLine().trim().toLowerCase();
+                if (choice.equals("y")) {
+                    if (transactionService.payAllUnpaidFinesWithAccount(email, authService)) {
+                        out.println("All fines paid successfully from account!");
+                        // Try borrowing the cart again
+                        printBorrowResults(cart, transactionService.borrowBatch(email, isbns));
+                    } else {
+                        out.println("Payment failed. Please try again.");
                     }
                 }
-                break;
-            default:
-                System.out.println("Failed to borrow book.");
+            } else {
+                out.print("Would you like to add money to your account? (y/n): ");
+                String choice = scanner.nextLine().trim().toLowerCase();
+                if (choice.equals("y")) {
+                    addMoneyToAccount(borrower);
+                }
+            }
+            return;
+        }
+        printBorrowResults(cart, results);
+    }
+    
+    private void printBorrowResults(List<Book> cart, List<BorrowResult> results) {
+        if (!results.contains(BorrowResult.SUCCESS)) {
+            out.println("Cart could not be borrowed:");
+        } else {
+            out.println("Books borrowed successfully!");
+            out.println("Due date: " + LocalDate.now().plusDays(15).format(DATE_FORMAT));
+        }
+        for (int i = 0; i < cart.size(); i++) {
+            String title = cart.get(i).getTitle();
+            switch (results.get(i)) {
+                case SUCCESS:
+                    out.println("- " + title);
+                    break;
+                case MAX_BOOKS_REACHED:
+                    out.println("- " + title + ": you can borrow at most 3 books.");
+                    break;
+                case BOOK_NOT_AVAILABLE:
+                    out.println("- " + title + ": not available for borrowing.");
+                    break;
+                case ALREADY_BORROWED:
+                    out.println("- " + title + ": you have already borrowed this book.");
+                    break;
+                case HAS_UNPAID_FINES:
+                    out.println("- " + title + ": you have unpaid fines.");
+                    break;
+                case CART_NOT_BORROWED:
+                    out.println("- " + title + ": not borrowed, since another book in the cart failed.");
+                    break;
+                default:
+                    out.println("- " + title + ": failed to borrow.");
+            }
         }
     }
     
@@ -573,45 +777,45 @@ public class Main {
         List<BorrowingRecord> borrowedBooks = transactionService.getCurrentBorrowedBooks(borrower.getUser().getEmail());
         
         if (borrowedBooks.isEmpty()) {
-            System.out.println("You have no books to return.");
+            out.println("You have no books to return.");
             return;
         }
         
-        System.out.println("\n--- Your Borrowed Books ---");
+        out.println("\n--- Your Borrowed Books ---");
         for (int i = 0; i < borrowedBooks.size(); i++) {
             BorrowingRecord record = borrowedBooks.get(i);
             Book book = bookService.getBookByIsbn(record.getIsbn());
             long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(record.getDueDate(), LocalDate.now());
             
-            System.out.println((i + 1) + ". " + book.getTitle() + 
+            out.println((i + 1) + ". " + book.getTitle() + 
                 " (Due: " + record.getDueDate().format(DATE_FORMAT) + 
                 (daysOverdue > 0 ? ", OVERDUE by " + daysOverdue + " days" : "") + ")");
         }
         
-        System.out.print("Enter book number to return: ");
+        out.print("Enter book number to return: ");
         int bookNum = getIntInput();
         
         if (bookNum >= 1 && bookNum <= borrowedBooks.size()) {
             BorrowingRecord record = borrowedBooks.get(bookNum - 1);
             
-            System.out.print("Enter return date (DD/MM/YYYY): ");
+            out.print("Enter return date (DD/MM/YYYY): ");
             String dateStr = scanner.nextLine().trim();
             
             LocalDate returnDate;
             try {
                 returnDate = LocalDate.parse(dateStr, DATE_FORMAT);
             } catch (Exception e) {
-                System.out.println("Invalid date format!");
+                out.println("Invalid date format!");
                 return;
             }
             
             if (transactionService.returnBook(record.getBorrowerEmail(), record.getIsbn(), returnDate)) {
-                System.out.println("Book returned successfully!");
+                out.println("Book returned successfully!");
             } else {
-                System.out.println("Failed to return book.");
+                out.println("Failed to return book.");
             }
         } else {
-            System.out.println("Invalid book number.");
+            out.println("Invalid book number.");
         }
     }
     
@@ -619,41 +823,41 @@ public class Main {
         List<BorrowingRecord> borrowedBooks = transactionService.getCurrentBorrowedBooks(borrower.getUser().getEmail());
         
         if (borrowedBooks.isEmpty()) {
-            System.out.println("You have no books to extend.");
+            out.println("You have no books to extend.");
             return;
         }
         
-        System.out.println("\n--- Your Borrowed Books ---");
+        out.println("\n--- Your Borrowed Books ---");
         for (int i = 0; i < borrowedBooks.size(); i++) {
             BorrowingRecord record = borrowedBooks.get(i);
             Book book = bookService.getBookByIsbn(record.getIsbn());
-            System.out.println((i + 1) + ". " + book.getTitle() + 
+            out.println((i + 1) + ". " + book.getTitle() + 
                 " (Due: " + record.getDueDate().format(DATE_FORMAT) + 
                 ", Extensions: " + record.getExtensions() + "/2)");
         }
         
-        System.out.print("Enter book number to extend: ");
+        out.print("Enter book number to extend: ");
         int bookNum = getIntInput();
         
         if (bookNum >= 1 && bookNum <= borrowedBooks.size()) {
             BorrowingRecord record = borrowedBooks.get(bookNum - 1);
             
             if (transactionService.extendBookTenure(record.getBorrowerEmail(), record.getIsbn())) {
-                System.out.println("Book tenure extended successfully!");
-                System.out.println("New due date: " + record.getDueDate().format(DATE_FORMAT));
+                out.println("Book tenure extended successfully!");
+                out.println("New due date: " + record.getDueDate().format(DATE_FORMAT));
             } else {
-                System.out.println("Failed to extend tenure. Maximum extensions (2) may have been reached.");
+                out.println("Failed to extend tenure. Maximum extensions (2) may have been reached.");
             }
         } else {
-            System.out.println("Invalid book number.");
+            out.println("Invalid book number.");
         }
     }
     
     private void reportLostMenu(Borrower borrower) {
-        System.out.println("\n--- Report Lost ---");
-        System.out.println("1. Report Lost Book");
-        System.out.println("2. Report Lost Membership Card");
-        System.out.print("Select option: ");
+        out.println("\n--- Report Lost ---");
+        out.println("1. Report Lost Book");
+        out.println("2. Report Lost Membership Card");
+        out.print("Select option: ");
         
         int choice = getIntInput();
         
@@ -663,10 +867,10 @@ public class Main {
                 break;
             case 2:
                 transactionService.reportLostCard(borrower.getUser().getEmail());
-                System.out.println("Membership card reported as lost. Fine of Rs. 10 has been applied.");
+                out.println("Membership card reported as lost. Fine of Rs. 10 has been applied.");
                 break;
             default:
-                System.out.println("Invalid option.");
+                out.println("Invalid option.");
         }
     }
     
@@ -674,18 +878,18 @@ public class Main {
         List<BorrowingRecord> borrowedBooks = transactionService.getCurrentBorrowedBooks(borrower.getUser().getEmail());
         
         if (borrowedBooks.isEmpty()) {
-            System.out.println("You have no borrowed books to report as lost.");
+            out.println("You have no borrowed books to report as lost.");
             return;
         }
         
-        System.out.println("\n--- Your Borrowed Books ---");
+        out.println("\n--- Your Borrowed Books ---");
         for (int i = 0; i < borrowedBooks.size(); i++) {
             BorrowingRecord record = borrowedBooks.get(i);
             Book book = bookService.getBookByIsbn(record.getIsbn());
-            System.out.println((i + 1) + ". " + book.getTitle());
+            out.println((i + 1) + ". " + book.getTitle());
         }
         
-        System.out.print("Enter book number to report as lost: ");
+        out.print("Enter book number to report as lost: ");
         int bookNum = getIntInput();
         
         if (bookNum >= 1 && bookNum <= borrowedBooks.size()) {
@@ -694,32 +898,90 @@ public class Main {
             
             transactionService.reportLostBook(record.getBorrowerEmail(), record.getIsbn());
             
-            double fine = book.getCost() * 0.5; // 50% of book cost
-            System.out.println("Book reported as lost.");
-            System.out.println("Fine amount: Rs. " + fine + " (50% of book cost)");
+            long fine = Money.percentOf(book.getCost(), 50); // 50% of book cost
+            out.println("Book reported as lost.");
+            out.println("Fine amount: Rs. " + Money.format(fine) + " (50% of book cost)");
         } else {
-            System.out.println("Invalid book number.");
+            out.println("Invalid book number.");
+        }
+    }
+    
+    // Every title with no copies on the shelf, read from the stock index
+    private void showOutOfStock() {
+        soldOutIsbns.clear();
+        List<Book> soldOut = bookService.getBooksWithLowQuantity(0);
+        if (soldOut.isEmpty()) {
+            return;
+        }
+        
+        out.println("\n--- Out of Stock (" + soldOut.size() + ") ---");
+        for (Book book : soldOut) {
+            out.println(book);
+        }
+    }
+    
+    // Titles that ran out since the last look, each shown once until it runs out again
+    private void showStockAlerts() {
+        List<String> isbns;
+        synchronized (soldOutIsbns) {
+            isbns = new ArrayList<>(soldOutIsbns);
+            soldOutIsbns.clear();
+        }
+        List<Book> soldOut = new ArrayList<>();
+        for (String isbn : isbns) {
+            Book book = bookService.getBookByIsbn(isbn);
+            if (book != null && book.getAvailableQuantity() <= 0) {
+                soldOut.add(book);
+            }
+        }
+        if (soldOut.isEmpty()) {
+            return;
+        }
+        
+        out.println("\n--- Now Out of Stock (" + soldOut.size() + ") ---");
+        for (Book book : soldOut) {
+            out.println(book);
+        }
+    }
+    
+    // Daily overdue notice, shown at the first admin login of the day
+    private void showNewlyOverdueLoans() {
+        List<BorrowingRecord> newlyOverdue = transactionService.sweepNewlyOverdue(LocalDate.now());
+        if (newlyOverdue.isEmpty()) {
+            return;
+        }
+        
+        out.println("\n--- Newly Overdue Loans (" + newlyOverdue.size() + ") ---");
+        for (BorrowingRecord record : newlyOverdue) {
+            User borrower = authService.getUserByEmail(record.getBorrowerEmail());
+            Book book = bookService.getBookByIsbn(record.getIsbn());
+            if (borrower != null && book != null) {
+                out.println(borrower.getName() + " (" + borrower.getEmail() + ") - " +
+                    book.getTitle() + " - Due: " + record.getDueDate().format(DATE_FORMAT));
+            }
         }
     }
     
     // Reports Methods
     private void adminReportsMenu() {
         while (true) {
-            System.out.println("\n=== ADMIN REPORTS ===");
-            System.out.println("1. Books with Low Quantity");
-            System.out.println("2. Books Never Borrowed");
-            System.out.println("3. Most Borrowed Books");
-            System.out.println("4. Outstanding Books Report");
-            System.out.println("5. Book Status by ISBN");
-            System.out.println("6. All Fines Report");
-            System.out.println("7. Back to Main Menu");
-            System.out.print("Select option: ");
+            out.println("\n=== ADMIN REPORTS ===");
+            out.println("1. Books with Low Quantity");
+            out.println("2. Books Never Borrowed");
+            out.println("3. Most Borrowed Books");
+            out.println("4. Outstanding Books Report");
+            out.println("5. Book Status by ISBN");
+            out.println("6. All Fines Report");
+            out.println("7. Back to Main Menu");
+            out.println("8. Run All Reports (Nightly)");
+            out.println("9. Trending Books");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
             switch (choice) {
                 case 1:
-                    System.out.print("Enter minimum quantity threshold: ");
+                    out.print("Enter minimum quantity threshold: ");
                     int threshold = getIntInput();
                     reportService.generateLowQuantityBooksReport(threshold);
                     break;
@@ -730,17 +992,17 @@ public class Main {
                     reportService.generateMostBorrowedBooksReport();
                     break;
                 case 4:
-                    System.out.print("Enter date to check outstanding books (DD/MM/YYYY): ");
+                    out.print("Enter date to check outstanding books (DD/MM/YYYY): ");
                     String dateStr = scanner.nextLine().trim();
                     try {
                         LocalDate checkDate = LocalDate.parse(dateStr, DATE_FORMAT);
                         reportService.generateOutstandingBooksReport(checkDate);
                     } catch (Exception e) {
-                        System.out.println("Invalid date format!");
+                        out.println("Invalid date format!");
                     }
                     break;
                 case 5:
-                    System.out.print("Enter ISBN: ");
+                    out.print("Enter ISBN: ");
                     String isbn = scanner.nextLine().trim();
                     reportService.generateBookStatusReport(isbn);
                     break;
@@ -749,20 +1011,33 @@ public class Main {
                     break;
                 case 7:
                     return;
+                case 8:
+                    out.print("Enter minimum quantity threshold: ");
+                    reportService.generateNightlyReports(getIntInput());
+                    break;
+                case 9:
+                    out.print("Trending over last (7/30/365) days: ");
+                    int windowDays = getIntInput();
+                    if (windowDays == 7 || windowDays == 30 || windowDays == 365) {
+                        reportService.generateTrendingBooksReport(windowDays);
+                    } else {
+                        out.println("Choose 7, 30 or 365 days.");
+                    }
+                    break;
                 default:
-                    System.out.println("Invalid option.");
+                    out.println("Invalid option.");
             }
         }
     }
     
     private void borrowerReportsMenu(Borrower borrower) {
         while (true) {
-            System.out.println("\n=== MY REPORTS ===");
-            System.out.println("1. My Fine History");
-            System.out.println("2. My Borrowing History");
-            System.out.println("3. Pay Fines");
-            System.out.println("4. Back to Main Menu");
-            System.out.print("Select option: ");
+            out.println("\n=== MY REPORTS ===");
+            out.println("1. My Fine History");
+            out.println("2. My Borrowing History");
+            out.println("3. Pay Fines");
+            out.println("4. Back to Main Menu");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
@@ -779,17 +1054,54 @@ public class Main {
                 case 4:
                     return;
                 default:
-                    System.out.println("Invalid option.");
+                    out.println("Invalid option.");
             }
         }
     }
     
+    // Returns everything in a book drop list at once and sums up the fines raised
+    private void processBookDrop() {
+        out.print("Enter book drop file (ISBN|Borrower Email|YYYY-MM-DD per line): ");
+        String file = scanner.nextLine().trim();
+        if (!new java.io.File(file).isFile()) {
+            out.println("File not found!");
+            return;
+        }
+        
+        List<ReturnRequest> requests;
+        try {
+            requests = TransactionService.readReturnRequests(file);
+        } catch (java.io.IOException | java.time.DateTimeException e) {
+            out.println("Could not read book drop file: " + e.getMessage());
+            return;
+        }
+        
+        BulkReturnSummary summary = transactionService.returnBooks(requests);
+        out.println("\n=== BOOK DROP SUMMARY ===");
+        out.println("Books returned: " + summary.getReturned().size() + " of " + requests.size());
+        if (!summary.getUnmatched().isEmpty()) {
+            out.println("\nNo active loan found for:");
+            for (ReturnRequest request : summary.getUnmatched()) {
+                out.println("- " + request);
+            }
+        }
+        if (!summary.getFinesRaised().isEmpty()) {
+            out.println("\nOverdue fines raised:");
+            for (FineRecord fine : summary.getFinesRaised()) {
+                Book book = bookService.getBookByIsbn(fine.getIsbn());
+                out.println("- " + fine.getBorrowerEmail() + ": " + (book != null ? book.getTitle() : fine.getIsbn()) +
+                    " - Rs. " + Money.format(fine.getAmount()));
+            }
+        }
+        out.println("Total fines raised: Rs. " + Money.format(summary.getTotalFines()));
+    }
+    
     private void fineManagementMenu() {
-        System.out.println("\n=== FINE MANAGEMENT ===");
-        System.out.println("1. View Unpaid Fines");
-        System.out.println("2. Mark Fine as Paid (Cash)");
-        System.out.println("3. Process Payment from Account");
-        System.out.print("Select option: ");
+        out.println("\n=== FINE MANAGEMENT ===");
+        out.println("1. View Unpaid Fines");
+        out.println("2. Mark Fine as Paid (Cash)");
+        out.println("3. Process Payment from Account");
+        out.print("Select option: ");
         
         int choice = getIntInput();
         
@@ -804,15 +1116,15 @@ public class Main {
                 processAccountPayment();
                 break;
             default:
-                System.out.println("Invalid option.");
+                out.println("Invalid option.");
         }
     }
     
     private void viewAvailableBooks() {
-        System.out.println("\n--- Available Books ---");
+        out.println("\n--- Available Books ---");
         List<Book> availableBooks = bookService.getAvailableBooks();
         for (Book book : availableBooks) {
-            System.out.println(book);
+            out.println(book);
         }
     }
     
@@ -823,40 +1135,35 @@ public class Main {
                 String input = scanner.nextLine().trim();
                 return Integer.parseInt(input);
             } catch (NumberFormatException e) {
-                System.out.print("Please enter a valid number: ");
+                out.print("Please enter a valid number: ");
             }
         }
     }
     
-    private double getDoubleInput() {
+    // Rupees as typed, returned in paise
+    private long getMoneyInput() {
         while (true) {
             try {
                 String input = scanner.nextLine().trim();
-                return Double.parseDouble(input);
-            } catch (NumberFormatException e) {
-                System.out.print("Please enter a valid number: ");
+                return Money.parse(input);
+            } catch (NumberFormatException | ArithmeticException e) {
+                out.print("Please enter a valid amount: ");
             }
         }
     }
     
-    private void saveAllData() {
-        authService.saveUsers();
-        bookService.saveBooks();
-        transactionService.saveData();
-    }
-    
     // Account Management Methods
     private void accountManagementMenu(Borrower borrower) {
         while (true) {
             User user = borrower.getUser();
-            System.out.println("\n=== ACCOUNT MANAGEMENT ===");
-            System.out.println("Current Account Balance: Rs. " + user.getAccountBalance());
-            System.out.println("Security Deposit: Rs. " + user.getSecurityDeposit());
-            System.out.println();
-            System.out.println("1. Add Money to Account");
-            System.out.println("2. View Account Details");
-            System.out.println("3. Back to Main Menu");
-            System.out.print("Select option: ");
+            out.println("\n=== ACCOUNT MANAGEMENT ===");
+            out.println("Current Account Balance: Rs. " + Money.format(user.getAccountBalance()));
+            out.println("Security Deposit: Rs. " + Money.format(user.getSecurityDeposit()));
+            out.println();
+            out.println("1. Add Money to Account");
+            out.println("2. View Account Details");
+            out.println("3. Back to Main Menu");
+            out.print("Select option: ");
             
             int choice = getIntInput();
             
@@ -870,306 +1177,301 @@ public class Main {
                 case 3:
                     return;
                 default:
-                    System.out.println("Invalid option.");
+                    out.println("Invalid option.");
             }
         }
     }
     
     private void addMoneyToAccount(Borrower borrower) {
-        System.out.print("Enter amount to add to account: Rs. ");
-        double amount = getDoubleInput();
+        out.print("Enter amount to add to account: Rs. ");
+        long amount = getMoneyInput();
         
         if (amount <= 0) {
-            System.out.println("Invalid amount. Please enter a positive value.");
+            out.println("Invalid amount. Please enter a positive value.");
             return;
         }
         
         borrower.getUser().addToAccountBalance(amount);
-        System.out.println("Rs. " + amount + " added to your account successfully!");
-        System.out.println("New account balance: Rs. " + borrower.getUser().getAccountBalance());
+        authService.updateUser(borrower.getUser());
+        out.println("Rs. " + Money.format(amount) + " added to your account successfully!");
+        out.println("New account balance: Rs. " + Money.format(borrower.getUser().getAccountBalance()));
     }
     
     private void viewAccountDetails(Borrower borrower) {
         User user = borrower.getUser();
-        System.out.println("\n=== ACCOUNT DETAILS ===");
-        System.out.println("Name: " + user.getName());
-        System.out.println("Email: " + user.getEmail());
-        System.out.println("Account Balance: Rs. " + user.getAccountBalance());
-        System.out.println("Security Deposit: Rs. " + user.getSecurityDeposit());
-        System.out.println("Fine Limit: Rs. " + user.getFineLimit());
+        out.println("\n=== ACCOUNT DETAILS ===");
+        out.println("Name: " + user.getName());
+        out.println("Email: " + user.getEmail());
+        out.println("Account Balance: Rs. " + Money.format(user.getAccountBalance()));
+        out.println("Security Deposit: Rs. " + Money.format(user.getSecurityDeposit()));
+        out.println("Fine Limit: Rs. " + Money.format(user.getFineLimit()));
         
-        double unpaidFines = transactionService.getTotalUnpaidFines(user.getEmail());
-        System.out.println("Unpaid Fines: Rs. " + unpaidFines);
+        long unpaidFines = transactionService.getTotalUnpaidFines(user.getEmail());
+        out.println("Unpaid Fines: Rs. " + Money.format(unpaidFines));
         
         int borrowedBooks = transactionService.getCurrentBorrowedBooks(user.getEmail()).size();
-        System.out.println("Currently Borrowed Books: " + borrowedBooks + "/3");
+        out.println("Currently Borrowed Books: " + borrowedBooks + "/3");
     }
     
     // Payment Methods
     private void payFinesMenu(Borrower borrower) {
-        double unpaidFines = transactionService.getTotalUnpaidFines(borrower.getUser().getEmail());
+        long unpaidFines = transactionService.getTotalUnpaidFines(borrower.getUser().getEmail());
         
         if (unpaidFines == 0) {
-            System.out.println("You have no unpaid fines.");
+            out.println("You have no unpaid fines.");
             return;
         }
         
-        System.out.println("\n=== PAY FINES ===");
-        System.out.println("Total unpaid fines: Rs. " + unpaidFines);
-        System.out.println("Account balance: Rs. " + borrower.getUser().getAccountBalance());
-        System.out.println();
-        System.out.println("1. Pay with Cash");
-        System.out.println("2. Pay from Account");
+        out.println("\n=== PAY FINES ===");
+        out.println("Total unpaid fines: Rs. " + Money.format(unpaidFines));
+        out.println("Account balance: Rs. " + Money.format(borrower.getUser().getAccountBalance()));
+        out.println();
+        out.println("1. Pay with Cash");
+        out.println("2. Pay from Account");
         if (borrower.getUser().getAccountBalance() < unpaidFines) {
-            System.out.println("3. Add Money to Account");
+            out.println("3. Add Money to Account");
         }
-        System.out.print("Select payment method: ");
+        out.print("Select payment method: ");
         
         int choice = getIntInput();
         
         switch (choice) {
             case 1:
                 if (transactionService.payAllUnpaidFinesWithCash(borrower.getUser().getEmail())) {
-                    System.out.println("All fines paid successfully with cash!");
+                    out.println("All fines paid successfully with cash!");
                 } else {
-                    System.out.println("No unpaid fines found.");
+                    out.println("No unpaid fines found.");
                 }
                 break;
             case 2:
                 if (borrower.getUser().getAccountBalance() < unpaidFines) {
-                    System.out.println("Insufficient account balance. Please add money first.");
+                    out.println("Insufficient account balance. Please add money first.");
                 } else {
                     if (transactionService.payAllUnpaidFinesWithAccount(borrower.getUser().getEmail(), authService)) {
-                        System.out.println("All fines paid successfully from account!");
-                        System.out.println("Remaining balance: Rs. " + borrower.getUser().getAccountBalance());
+                        out.println("All fines paid successfully from account!");
+                        out.println("Remaining balance: Rs. " + Money.format(borrower.getUser().getAccountBalance()));
                     } else {
-                        System.out.println("Payment failed. Please try again.");
+                        out.println("Payment failed. Please try again.");
                     }
                 }
                 break;
             case 3:
                 if (borrower.getUser().getAccountBalance() >= unpaidFines) {
-                    System.out.println("You already have sufficient balance.");
+                    out.println("You already have sufficient balance.");
                 } else {
                     addMoneyToAccount(borrower);
                 }
                 break;
             default:
-                System.out.println("Invalid option.");
+                out.println("Invalid option.");
         }
     }
     
     private void markFineAsPaidCash() {
-        System.out.print("Enter borrower email: ");
+        out.print("Enter borrower email: ");
         String email = scanner.nextLine().trim();
         
-        List<FineRecord> unpaidFines = new ArrayList<>();
-        for (FineRecord fine : transactionService.getAllFineRecords()) {
-            if (fine.getBorrowerEmail().equals(email) && !fine.isPaid()) {
-                unpaidFines.add(fine);
-            }
-        }
+        List<FineRecord> unpaidFines = transactionService.getUnpaidFines(email);
         
         if (unpaidFines.isEmpty()) {
-            System.out.println("No unpaid fines for this borrower.");
+            out.println("No unpaid fines for this borrower.");
             return;
         }
         
-        System.out.println("\n--- Unpaid Fines ---");
+        out.println("\n--- Unpaid Fines ---");
         for (int i = 0; i < unpaidFines.size(); i++) {
             FineRecord fine = unpaidFines.get(i);
             String bookTitle = fine.getIsbn().equals("CARD") ? "Membership Card" : 
                 bookService.getBookByIsbn(fine.getIsbn()).getTitle();
-            System.out.println((i + 1) + ". " + bookTitle + " - Rs. " + fine.getAmount() + 
+            out.println((i + 1) + ". " + bookTitle + " - Rs. " + Money.format(fine.getAmount()) + 
                 " (" + fine.getReason() + ")");
         }
         
-        System.out.print("Enter fine number to mark as paid (0 for all): ");
+        out.print("Enter fine number to mark as paid (0 for all): ");
         int fineNum = getIntInput();
         
         if (fineNum == 0) {
-            for (FineRecord fine : unpaidFines) {
-                fine.setPaid(true);
-            }
-            System.out.println("All fines marked as paid with cash.");
+            transactionService.payAllUnpaidFinesWithCash(email);
+            out.println("All fines marked as paid with cash.");
         } else if (fineNum >= 1 && fineNum <= unpaidFines.size()) {
-            unpaidFines.get(fineNum - 1).setPaid(true);
-            System.out.println("Fine marked as paid with cash.");
+            transactionService.markFinePaid(unpaidFines.get(fineNum - 1));
+            out.println("Fine marked as paid with cash.");
         } else {
-            System.out.println("Invalid fine number.");
+            out.println("Invalid fine number.");
         }
     }
     
     private void processAccountPayment() {
-        System.out.print("Enter borrower email: ");
+        out.print("Enter borrower email: ");
         String email = scanner.nextLine().trim();
         
         User user = authService.getUserByEmail(email);
         if (user == null) {
-            System.out.println("User not found.");
+            out.println("User not found.");
             return;
         }
         
-        double unpaidFines = transactionService.getTotalUnpaidFines(email);
+        long unpaidFines = transactionService.getTotalUnpaidFines(email);
         if (unpaidFines == 0) {
-            System.out.println("This user has no unpaid fines.");
+            out.println("This user has no unpaid fines.");
             return;
         }
         
-        System.out.println("User: " + user.getName());
-        System.out.println("Total unpaid fines: Rs. " + unpaidFines);
-        System.out.println("Account balance: Rs. " + user.getAccountBalance());
+        out.println("User: " + user.getName());
+        out.println("Total unpaid fines: Rs. " + Money.format(unpaidFines));
+        out.println("Account balance: Rs. " + Money.format(user.getAccountBalance()));
         
         if (user.getAccountBalance() < unpaidFines) {
-            System.out.println("Insufficient account balance for payment.");
+            out.println("Insufficient account balance for payment.");
             return;
         }
         
-        System.out.print("Process payment from account? (y/n): ");
+        out.print("Process payment from account? (y/n): ");
         String confirm = scanner.nextLine().trim().toLowerCase();
         
         if (confirm.equals("y")) {
             if (transactionService.payAllUnpaidFinesWithAccount(email, authService)) {
-                System.out.println("Payment processed successfully!");
-                System.out.println("Remaining balance: Rs. " + user.getAccountBalance());
+                out.println("Payment processed successfully!");
+                out.println("Remaining balance: Rs. " + Money.format(user.getAccountBalance()));
             } else {
-                System.out.println("Payment failed.");
+                out.println("Payment failed.");
             }
         } else {
-            System.out.println("Payment cancelled.");
+            out.println("Payment cancelled.");
         }
     }
     
     private void promoteUserToAdmin() {
-        System.out.println("\n--- Promote User to Admin ---");
-        System.out.print("Enter email of user to promote to admin: ");
+        out.println("\n--- Promote User to Admin ---");
+        out.print("Enter email of user to promote to admin: ");
         String email = scanner.nextLine().trim();
         
         User user = authService.getUserByEmail(email);
         if (user == null) {
-            System.out.println("User not found!");
+            out.println("User not found!");
             return;
         }
         
         if (user.getRole() == UserRole.ADMIN) {
-            System.out.println("User is already an admin!");
+            out.println("User is already an admin!");
             return;
         }
         
         // Check if user has any outstanding books or fines
         List<BorrowingRecord> borrowedBooks = transactionService.getCurrentBorrowedBooks(email);
-        double unpaidFines = transactionService.getTotalUnpaidFines(email);
+        long unpaidFines = transactionService.getTotalUnpaidFines(email);
         
         if (!borrowedBooks.isEmpty()) {
-            System.out.println("Cannot promote user to admin. User has " + borrowedBooks.size() + " borrowed books.");
-            System.out.println("Please ensure all books are returned before promotion.");
+            out.println("Cannot promote user to admin. User has " + borrowedBooks.size() + " borrowed books.");
+            out.println("Please ensure all books are returned before promotion.");
             return;
         }
         
         if (unpaidFines > 0) {
-            System.out.println("Cannot promote user to admin. User has unpaid fines of Rs. " + unpaidFines);
-            System.out.println("Please ensure all fines are paid before promotion.");
+            out.println("Cannot promote user to admin. User has unpaid fines of Rs. " + Money.format(unpaidFines));
+            out.println("Please ensure all fines are paid before promotion.");
             return;
         }
         
-        System.out.println("User Details: " + user);
-        System.out.print("Are you sure you want to promote this user to admin? (y/n): ");
+        out.println("User Details: " + user);
+        out.print("Are you sure you want to promote this user to admin? (y/n): ");
         String confirm = scanner.nextLine().trim().toLowerCase();
         
         if (confirm.equals("y") || confirm.equals("yes")) {
             if (authService.promoteToAdmin(email)) {
-                System.out.println("User promoted to admin successfully!");
+                out.println("User promoted to admin successfully!");
             } else {
-                System.out.println("Failed to promote user.");
+                out.println("Failed to promote user.");
             }
         } else {
-            System.out.println("Promotion cancelled.");
+            out.println("Promotion cancelled.");
         }
     }
     
     private void deleteUser() {
-        System.out.println("\n--- Delete User ---");
-        System.out.print("Enter email of user to delete: ");
+        out.println("\n--- Delete User ---");
+        out.print("Enter email of user to delete: ");
         String email = scanner.nextLine().trim();
         
         User user = authService.getUserByEmail(email);
         if (user == null) {
-            System.out.println("User not found!");
+            out.println("User not found!");
             return;
         }
         
         // Prevent deleting the current admin
-        System.out.println("Current user details: " + user);
+        out.println("Current user details: " + user);
         
         // Check if user has any outstanding books
         List<BorrowingRecord> borrowedBooks = transactionService.getCurrentBorrowedBooks(email);
         if (!borrowedBooks.isEmpty()) {
-            System.out.println("Cannot delete user. User has " + borrowedBooks.size() + " borrowed books.");
-            System.out.println("Books must be returned before deletion:");
+            out.println("Cannot delete user. User has " + borrowedBooks.size() + " borrowed books.");
+            out.println("Books must be returned before deletion:");
             for (BorrowingRecord record : borrowedBooks) {
                 Book book = bookService.getBookByIsbn(record.getIsbn());
                 if (book != null) {
-                    System.out.println("- " + book.getTitle() + " (Due: " + record.getDueDate().format(DATE_FORMAT) + ")");
+                    out.println("- " + book.getTitle() + " (Due: " + record.getDueDate().format(DATE_FORMAT) + ")");
                 }
             }
             return;
         }
         
         // Check if user has unpaid fines
-        double unpaidFines = transactionService.getTotalUnpaidFines(email);
+        long unpaidFines = transactionService.getTotalUnpaidFines(email);
         if (unpaidFines > 0) {
-            System.out.println("Warning: User has unpaid fines of Rs. " + unpaidFines);
-            System.out.print("Do you still want to delete the user? (y/n): ");
+            out.println("Warning: User has unpaid fines of Rs. " + Money.format(unpaidFines));
+            out.print("Do you still want to delete the user? (y/n): ");
             String confirmFines = scanner.nextLine().trim().toLowerCase();
             if (!confirmFines.equals("y") && !confirmFines.equals("yes")) {
-                System.out.println("Deletion cancelled.");
+                out.println("Deletion cancelled.");
                 return;
             }
         }
         
-        System.out.println("User to delete: " + user);
-        System.out.print("Are you sure you want to delete this user? This action cannot be undone. (y/n): ");
+        out.println("User to delete: " + user);
+        out.print("Are you sure you want to delete this user? This action cannot be undone. (y/n): ");
         String confirm = scanner.nextLine().trim().toLowerCase();
         
         if (confirm.equals("y") || confirm.equals("yes")) {
             if (authService.deleteUser(email)) {
-                System.out.println("User deleted successfully!");
+                out.println("User deleted successfully!");
                 if (unpaidFines > 0) {
-                    System.out.println("Note: Unpaid fines of Rs. " + unpaidFines + " were written off.");
+                    out.println("Note: Unpaid fines of Rs. " + Money.format(unpaidFines) + " were written off.");
                 }
             } else {
-                System.out.println("Failed to delete user.");
+                out.println("Failed to delete user.");
             }
         } else {
-            System.out.println("Deletion cancelled.");
+            out.println("Deletion cancelled.");
         }
     }
     
     private void addMoneyToUserAccount() {
-        System.out.println("\n--- Add Money to User Account ---");
-        System.out.print("Enter email of user: ");
+        out.println("\n--- Add Money to User Account ---");
+        out.print("Enter email of user: ");
         String email = scanner.nextLine().trim();
         
         User user = authService.getUserByEmail(email);
         if (user == null) {
-            System.out.println("User not found!");
+            out.println("User not found!");
             return;
         }
         
-        System.out.println("User: " + user.getName() + " (" + user.getEmail() + ")");
-        System.out.println("Current account balance: Rs. " + user.getAccountBalance());
-        System.out.println("Current security deposit: Rs. " + user.getSecurityDeposit());
+        out.println("User: " + user.getName() + " (" + user.getEmail() + ")");
+        out.println("Current account balance: Rs. " + Money.format(user.getAccountBalance()));
+        out.println("Current security deposit: Rs. " + Money.format(user.getSecurityDeposit()));
         
-        System.out.print("Enter amount to add to account: Rs. ");
-        double amount = getDoubleInput();
+        out.print("Enter amount to add to account: Rs. ");
+        long amount = getMoneyInput();
         
         if (amount <= 0) {
-            System.out.println("Invalid amount. Please enter a positive value.");
+            out.println("Invalid amount. Please enter a positive value.");
             return;
         }
         
         user.addToAccountBalance(amount);
-        System.out.println("Rs. " + amount + " added to " + user.getName() + "'s account successfully!");
-        System.out.println("New account balance: Rs. " + user.getAccountBalance());
+        authService.updateUser(user);
+        out.println("Rs. " + Money.format(amount) + " added to " + user.getName() + "'s account successfully!");
+        out.println("New account balance: Rs. " + Money.format(user.getAccountBalance()));
     }
 }
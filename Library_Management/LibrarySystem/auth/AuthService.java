@@ -1,41 +1,158 @@
 package LibrarySystem.auth;
 
 import LibrarySystem.models.*;
+import LibrarySystem.metrics.*;
+import LibrarySystem.persistence.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.*;
 import java.io.*;
 
+// Passwords are stored as PBKDF2 hashes (see PasswordHasher). Plaintext ones
+// from older users.txt files still log in and are hashed on first login.
 public class AuthService {
-    private static final String USERS_FILE = "users.txt";
+    public static final String USERS_FILE = "users.txt";
+    private static final int LOGIN_CACHE_ENTRIES = 10000;
+    private static final long LOGIN_CACHE_TTL_MS = 5 * 60 * 1000;
+    private static final OperationMetrics AUTHENTICATE_METRICS = Metrics.operation("auth.authenticate"); // Failed = rejected login
     private Map<String, User> users;
+    private Journal journal;
+    private Lock changeLock = new ReentrantReadWriteLock().readLock();
+    private volatile PasswordHasher passwordHasher = new PasswordHasher(PasswordHasher.DEFAULT_ITERATIONS);
+    private final VerificationCache verifiedLogins = new VerificationCache(LOGIN_CACHE_ENTRIES, LOGIN_CACHE_TTL_MS);
     
     public AuthService() {
-        this.users = new HashMap<>();
-        loadUsers();
+        this(readUsers());
+    }
+    
+    public AuthService(List<User> loadedUsers) {
+        this.users = new ConcurrentHashMap<>();
+        for (User user : loadedUsers) {
+            users.put(user.getEmail(), user);
+        }
         
         // Add default admin if no users exist
         if (users.isEmpty()) {
             users.put("admin@library.com", 
-                new User("admin@library.com", "Admin", "admin123", UserRole.ADMIN, 0));
+                new User("admin@library.com", "Admin", passwordHasher.hash("admin123"), UserRole.ADMIN, 0));
             System.out.println("Default admin created: admin@library.com / admin123");
         }
     }
     
+    public static List<User> readUsers() {
+        try {
+            return DelimitedFileReader.read(USERS_FILE, row -> row.fieldCount() >= 5 ? parseUser(row.fields()) : null);
+        } catch (IOException e) {
+            System.err.println("Error loading users: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    
     public User authenticate(String email, String password) {
-        User user = users.get(email);
-        if (user != null && user.getPassword().equals(password)) {
+        long started = AUTHENTICATE_METRICS.start();
+        User user = null;
+        try {
+            user = authenticateTimed(email, password);
             return user;
+        } finally {
+            AUTHENTICATE_METRICS.finish(started, user != null);
         }
-        return null;
     }
     
-    public boolean registerUser(String email, String name, String password, UserRole role, double securityDeposit) {
-        if (users.containsKey(email)) {
-            return false; // User already exists
+    private User authenticateTimed(String email, String password) {
+        User user = users.get(email);
+        if (user == null || password == null) {
+            return null;
+        }
+        String stored = user.getPassword();
+        if (verifiedLogins.matches(email, stored, password)) {
+            return user;
         }
         
-        User user = new User(email, name, password, role, securityDeposit);
-        users.put(email, user);
-        return true;
+        PasswordHasher hasher = passwordHasher;
+        if (!hasher.verify(password, stored)) {
+            return null;
+        }
+        // Plaintext from before hashing, or an older work factor
+        if (hasher.needsRehash(stored)) {
+            String rehashed = hasher.hash(password);
+            if (replacePassword(user, stored, rehashed)) {
+                stored = rehashed;
+            }
+        }
+        verifiedLogins.put(email, stored, password);
+        return user;
+    }
+    
+    // Swaps in the new hash unless the password was changed or the user deleted meanwhile
+    private boolean replacePassword(User user, String expected, String stored) {
+        changeLock.lock();
+        try {
+            synchronized (user) {
+                if (users.get(user.getEmail()) != user || !user.getPassword().equals(expected)) {
+                    return false;
+                }
+                user.setPassword(stored);
+                journalUser(user);
+            }
+            return true;
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    // Hashes the new password; the caller saves it with updateUser as with other edits
+    public void setPassword(User user, String password) {
+        user.setPassword(passwordHasher.hash(password));
+        verifiedLogins.invalidate(user.getEmail());
+    }
+    
+    // Hashes passwords still held as plaintext (from users.txt files older
+    // than hashing) without waiting for each user to log in. Each one is
+    // journaled like a login upgrade; stops early if the thread is interrupted.
+    public int hashPlaintextPasswords() {
+        int hashed = 0;
+        for (User user : users.values()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            String stored = user.getPassword();
+            if (PasswordHasher.isPlaintext(stored) && replacePassword(user, stored, passwordHasher.hash(stored))) {
+                verifiedLogins.invalidate(user.getEmail());
+                hashed++;
+            }
+        }
+        return hashed;
+    }
+    
+    // Work factor for new hashes. Existing ones are rehashed at their next login.
+    public void setPasswordIterations(int iterations) {
+        passwordHasher = new PasswordHasher(iterations);
+        verifiedLogins.clear();
+    }
+    
+    public boolean registerUser(String email, String name, String password, UserRole role, long securityDeposit) {
+        User user = new User(email, name, passwordHasher.hash(password), role, securityDeposit);
+        changeLock.lock();
+        try {
+            if (users.putIfAbsent(email, user) != null) {
+                return false; // User already exists
+            }
+            journalUser(user);
+            return true;
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    // Records in-place changes made to a user (name, password, deposit, balance)
+    public void updateUser(User user) {
+        changeLock.lock();
+        try {
+            journalUser(user);
+        } finally {
+            changeLock.unlock();
+        }
     }
     
     public User getUserByEmail(String email) {
@@ -46,55 +163,99 @@ public class AuthService {
         return users;
     }
     
-    public void saveUsers() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(USERS_FILE))) {
-            for (User user : users.values()) {
-                writer.println(user.getEmail() + "|" + user.getName() + "|" + 
-                    user.getPassword() + "|" + user.getRole() + "|" + user.getSecurityDeposit() + 
-                    "|" + user.getAccountBalance());
-            }
+    public boolean saveUsers() {
+        try {
+            SnapshotFiles.stage(USERS_FILE, writer -> {
+                for (User user : users.values()) {
+                    writer.println(String.join("|", toFields(user)));
+                }
+            });
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving users: " + e.getMessage());
+            return false;
         }
     }
     
-    private void loadUsers() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(USERS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 5) {
-                    User user = new User(parts[0], parts[1], parts[2], 
-                        UserRole.valueOf(parts[3]), Double.parseDouble(parts[4]));
-                    // Load account balance if present (for backward compatibility)
-                    if (parts.length >= 6) {
-                        user.setAccountBalance(Double.parseDouble(parts[5]));
-                    }
-                    users.put(parts[0], user);
-                }
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+        this.changeLock = journal.changeLock();
+    }
+    
+    public void applyJournalEvent(JournalEventType type, String[] fields) {
+        switch (type) {
+            case USER_PUT:
+                User user = parseUser(fields);
+                users.put(user.getEmail(), user);
+                break;
+            case USER_DELETE:
+                users.remove(fields[0]);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static User parseUser(String[] parts) {
+        User user = new User(parts[0], parts[1], parts[2], 
+            UserRole.valueOf(parts[3]), Money.parse(parts[4]));
+        // Load account balance if present (for backward compatibility)
+        if (parts.length >= 6) {
+            user.setAccountBalance(Money.parse(parts[5]));
+        }
+        return user;
+    }
+    
+    private String[] toFields(User user) {
+        return new String[] {
+            user.getEmail(), user.getName(), user.getPassword(), user.getRole().toString(),
+            Money.format(user.getSecurityDeposit()), Money.format(user.getAccountBalance())
+        };
+    }
+    
+    // Fields are read and appended under the user's monitor so events for one user stay in order
+    private void journalUser(User user) {
+        if (journal != null) {
+            synchronized (user) {
+                journal.append(JournalEventType.USER_PUT, toFields(user));
             }
-        } catch (IOException e) {
-            // File doesn't exist yet, which is fine for first run
         }
     }
     
     public boolean deleteUser(String email) {
-        if (users.containsKey(email)) {
-            users.remove(email);
+        changeLock.lock();
+        try {
+            if (users.remove(email) == null) {
+                return false;
+            }
+            if (journal != null) {
+                journal.append(JournalEventType.USER_DELETE, email);
+            }
             return true;
+        } finally {
+            changeLock.unlock();
         }
-        return false;
     }
     
     public boolean promoteToAdmin(String email) {
-        User user = users.get(email);
-        if (user != null && user.getRole() == UserRole.BORROWER) {
-            user = new User(user.getEmail(), user.getName(), user.getPassword(), 
-                           UserRole.ADMIN, user.getSecurityDeposit());
-            user.setAccountBalance(users.get(email).getAccountBalance());
-            users.put(email, user);
-            return true;
+        changeLock.lock();
+        try {
+            User user = users.get(email);
+            if (user != null && user.getRole() == UserRole.BORROWER) {
+                User admin = new User(user.getEmail(), user.getName(), user.getPassword(), 
+                               UserRole.ADMIN, user.getSecurityDeposit());
+                synchronized (user) {
+                    admin.setAccountBalance(user.getAccountBalance());
+                    if (!users.replace(email, user, admin)) {
+                        return false; // Deleted or changed by another desk
+                    }
+                }
+                journalUser(admin);
+                return true;
+            }
+            return false;
+        } finally {
+            changeLock.unlock();
         }
-        return false;
     }
 }
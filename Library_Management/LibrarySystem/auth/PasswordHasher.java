@@ -0,0 +1,99 @@
+package LibrarySystem.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 (HMAC-SHA256) password hashes, stored as
+// pbkdf2$<iterations>$<salt>$<hash> with Base64 salt and hash. Anything else
+// in the password field is a plaintext password from before hashing; it
+// still verifies, and needsRehash reports it so it can be upgraded.
+public final class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 310000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" +
+            encoder.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    public boolean verify(String password, String stored) {
+        if (stored == null || password == null) {
+            return false;
+        }
+        String[] parts = parse(stored);
+        if (parts == null) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(parts[2]);
+        return MessageDigest.isEqual(pbkdf2(password, decoder.decode(parts[1]), Integer.parseInt(parts[0])), expected);
+    }
+
+    public static boolean isPlaintext(String stored) {
+        return stored != null && parse(stored) == null;
+    }
+
+    // Plaintext, or hashed with a different work factor
+    public boolean needsRehash(String stored) {
+        String[] parts = parse(stored);
+        return parts == null || Integer.parseInt(parts[0]) != iterations;
+    }
+
+    // Returns {iterations, salt, hash}, or null if stored is not a well-formed hash
+    private static String[] parse(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3 || parts[0].isEmpty() || parts[0].length() > 9) {
+            return null;
+        }
+        for (int i = 0; i < parts[0].length(); i++) {
+            if (!Character.isDigit(parts[0].charAt(i))) {
+                return null;
+            }
+        }
+        try {
+            Base64.getDecoder().decode(parts[1]);
+            Base64.getDecoder().decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return Integer.parseInt(parts[0]) > 0 ? parts : null;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e); // Part of every Java 8+ runtime
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package LibrarySystem.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.util.*;
+
+// Recent successful logins, so a user logging in again within the TTL skips
+// PBKDF2. An entry keeps a keyed SHA-256 of the password (the key is random
+// per run), never the password itself, and only matches while the user's
+// stored hash is the one it was verified against, so a password change
+// invalidates it. Least recently used entries go first once full.
+class VerificationCache {
+    private static final int KEY_BYTES = 32;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final byte[] key = new byte[KEY_BYTES];
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(VerificationCache::newDigest);
+    private final LinkedHashMap<String, Verification> entries;
+
+    private static final class Verification {
+        final String storedHash;
+        final byte[] passwordDigest;
+        final long expiresAt;
+
+        Verification(String storedHash, byte[] passwordDigest, long expiresAt) {
+            this.storedHash = storedHash;
+            this.passwordDigest = passwordDigest;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    VerificationCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1000000L;
+        new SecureRandom().nextBytes(key);
+        this.entries = new LinkedHashMap<String, Verification>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Verification> eldest) {
+                return size() > VerificationCache.this.maxEntries;
+            }
+        };
+    }
+
+    boolean matches(String email, String storedHash, String password) {
+        Verification verification;
+        synchronized (this) {
+            verification = entries.get(email);
+            if (verification == null) {
+                return false;
+            }
+            if (System.nanoTime() - verification.expiresAt > 0) {
+                entries.remove(email);
+                return false;
+            }
+        }
+        return verification.storedHash.equals(storedHash) && MessageDigest.isEqual(verification.passwordDigest, digest(password));
+    }
+
+    void put(String email, String storedHash, String password) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Verification verification = new Verification(storedHash, digest(password), System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            entries.put(email, verification);
+        }
+    }
+
+    synchronized void invalidate(String email) {
+        entries.remove(email);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private byte[] digest(String password) {
+        MessageDigest digest = digests.get();
+        digest.update(key);
+        return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Part of every Java runtime
+        }
+    }
+}
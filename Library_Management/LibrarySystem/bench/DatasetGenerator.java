@@ -0,0 +1,256 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.models.Money;
+import LibrarySystem.transactions.FineSchedule;
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Writes users.txt, books.txt, borrowing.txt and fines.txt for a synthetic
+// library. The same scale, seed and options always produce the same files
+// (dates are relative to the anchor day, which defaults to today).
+//
+// Book popularity and borrower activity are Zipfian, a share of returns are
+// late and fined with the library's own overdue formula, some loans are
+// extended, and a few books are lost. Shelf stock is consistent with the
+// loans still open.
+//
+// Usage: java LibrarySystem.bench.DatasetGenerator <loans> [dir] [seed]
+//            [--zipf=1.0] [--overdue=0.15] [--extensions=0.2] [--lost=0.005]
+public class DatasetGenerator {
+    public static final String MARKER_FILE = "dataset.properties";
+
+    static final String[] TITLE_WORDS = {
+        "Java", "Patterns", "Clean", "Code", "Design", "Systems", "Data", "Modern",
+        "Effective", "Practical", "Algorithms", "Networks", "Secure", "Distributed", "Learning", "Guide",
+        "Introduction", "Advanced", "Database", "Compilers", "Operating", "Software", "Architecture", "Testing",
+        "Concurrency", "Functional", "Programming", "Structures", "Theory", "Applied", "Cloud", "Engineering"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Asha", "Ravi", "Meera", "Arjun", "Kavya", "Vikram", "Divya", "Karthik",
+        "Priya", "Suresh", "Anita", "Rahul", "Lakshmi", "Ganesh", "Nisha", "Manoj"
+    };
+    private static final String[] LAST_NAMES = {
+        "Kumar", "Iyer", "Sharma", "Nair", "Reddy", "Menon", "Rao", "Pillai",
+        "Gupta", "Das", "Joshi", "Bose", "Patel", "Singh", "Verma", "Shah"
+    };
+
+    private static final int LOAN_DAYS = 15;
+    private static final int HISTORY_DAYS = 3 * 365;
+    private static final double BORROWER_ACTIVITY_SKEW = 0.6;
+
+    private final Random random;
+    private final long seed;
+    private final int loanCount;
+    private final int userCount;
+    private final int bookCount;
+    private final LocalDate today;
+
+    private double popularitySkew = 1.0;   // Zipf exponent for book popularity
+    private double overdueRate = 0.15;     // Share of returns that come back late
+    private double extensionRate = 0.2;    // Share of loans extended at least once
+    private double lostRate = 0.005;       // Share of loans that end with a lost book
+
+    private List<String> bookLines;        // isbn|title|author, drawn before the loans
+    private int[] totalCopies;
+    private long[] costs; // Paise
+
+    public DatasetGenerator(int loanCount, long seed, LocalDate today) {
+        this.random = new Random(seed);
+        this.seed = seed;
+        this.loanCount = loanCount;
+        this.userCount = Math.max(100, loanCount / 20);
+        this.bookCount = Math.max(100, loanCount / 50);
+        this.today = today;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.isEmpty()) {
+            System.out.println("Usage: java LibrarySystem.bench.DatasetGenerator <loans> [dir] [seed] " +
+                "[--zipf=1.0] [--overdue=0.15] [--extensions=0.2] [--lost=0.005]");
+            return;
+        }
+        int loans = parseScale(positional.get(0));
+        Path dir = Paths.get(positional.size() > 1 ? positional.get(1) : ".");
+        long seed = positional.size() > 2 ? Long.parseLong(positional.get(2)) : 42L;
+
+        DatasetGenerator generator = new DatasetGenerator(loans, seed, LocalDate.now());
+        if (options.containsKey("zipf")) generator.setPopularitySkew(Double.parseDouble(options.get("zipf")));
+        if (options.containsKey("overdue")) generator.setOverdueRate(Double.parseDouble(options.get("overdue")));
+        if (options.containsKey("extensions")) generator.setExtensionRate(Double.parseDouble(options.get("extensions")));
+        if (options.containsKey("lost")) generator.setLostRate(Double.parseDouble(options.get("lost")));
+        generator.writeTo(dir);
+        System.out.println("Wrote " + loans + " loans, " + generator.userCount + " users and " +
+            generator.bookCount + " books to " + dir.toAbsolutePath());
+    }
+
+    public void setPopularitySkew(double popularitySkew) { this.popularitySkew = popularitySkew; }
+    public void setOverdueRate(double overdueRate) { this.overdueRate = overdueRate; }
+    public void setExtensionRate(double extensionRate) { this.extensionRate = extensionRate; }
+    public void setLostRate(double lostRate) { this.lostRate = lostRate; }
+
+    // Accepts plain numbers and k/m suffixes, e.g. 10k or 1m
+    public static int parseScale(String scale) {
+        String value = scale.trim().toLowerCase();
+        int multiplier = 1;
+        if (value.endsWith("k")) {
+            multiplier = 1000;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("m")) {
+            multiplier = 1000000;
+            value = value.substring(0, value.length() - 1);
+        }
+        return Integer.parseInt(value) * multiplier;
+    }
+
+    public static String emailOf(int user) {
+        return "user" + user + "@example.com";
+    }
+
+    public static String isbnOf(int book) {
+        return String.format("978-%010d", book);
+    }
+
+    // Loans are generated before books.txt is written, since open loans take copies off the shelf
+    public void writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        writeUsers(dir.resolve("users.txt"));
+        int[] onLoan = writeLoansAndFines(dir.resolve("borrowing.txt"), dir.resolve("fines.txt"));
+        writeBooks(dir.resolve("books.txt"), onLoan);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKER_FILE)))) {
+            writer.println("loans=" + loanCount);
+            writer.println("seed=" + seed);
+            writer.println("today=" + today);
+            writer.println("zipf=" + popularitySkew);
+            writer.println("overdue=" + overdueRate);
+            writer.println("extensions=" + extensionRate);
+            writer.println("lost=" + lostRate);
+        }
+    }
+
+    private void writeUsers(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("admin@library.com|Admin|admin123|ADMIN|0.00|0.00");
+            for (int user = 0; user < userCount; user++) {
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                long deposit = Money.ofRupees(500 + 100 * random.nextInt(16));
+                long balance = Money.ofRupees(50 * random.nextInt(20));
+                writer.println(emailOf(user) + "|" + name + "|pw" + user + "|BORROWER|" + Money.format(deposit) + "|" + Money.format(balance));
+            }
+        }
+    }
+
+    // Titles and authors are drawn up front so loans can use copies and costs
+    private List<String> drawBooks() {
+        List<String> lines = new ArrayList<>(bookCount);
+        totalCopies = new int[bookCount];
+        costs = new long[bookCount];
+        for (int book = 0; book < bookCount; book++) {
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(3);
+            for (int i = 0; i < words; i++) {
+                if (i > 0) {
+                    title.append(' ');
+                }
+                title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            }
+            String author = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            totalCopies[book] = 1 + random.nextInt(10);
+            costs[book] = Money.ofRupees(200 + 50 * random.nextInt(60));
+            lines.add(isbnOf(book) + "|" + title + "|" + author);
+        }
+        return lines;
+    }
+
+    private void writeBooks(Path file, int[] onLoan) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (int book = 0; book < bookCount; book++) {
+                writer.println(bookLines.get(book) + "|" + (totalCopies[book] - onLoan[book]) + "|" + Money.format(costs[book]));
+            }
+        }
+    }
+
+    // Returns the number of copies of each book still out on loan.
+    // A borrower keeps at most three open loans, of distinct titles, all
+    // borrowed within the last 45 days (some of them already overdue).
+    private int[] writeLoansAndFines(Path loansFile, Path finesFile) throws IOException {
+        bookLines = drawBooks();
+        ZipfSampler books = new ZipfSampler(bookCount, popularitySkew, seed);
+        ZipfSampler borrowers = new ZipfSampler(userCount, BORROWER_ACTIVITY_SKEW, seed + 1);
+        int[] onLoan = new int[bookCount];
+        int[][] openLoans = new int[userCount][];
+
+        try (PrintWriter loans = new PrintWriter(Files.newBufferedWriter(loansFile));
+             PrintWriter fines = new PrintWriter(Files.newBufferedWriter(finesFile))) {
+            for (int i = 0; i < loanCount; i++) {
+                int user = borrowers.next(random);
+                int book = books.next(random);
+                String email = emailOf(user);
+                String isbn = isbnOf(book);
+                LocalDate borrowDate = today.minusDays(random.nextInt(HISTORY_DAYS));
+                int extensions = random.nextDouble() < extensionRate ? (random.nextInt(3) == 0 ? 2 : 1) : 0;
+                LocalDate dueDate = borrowDate.plusDays(LOAN_DAYS * (1 + extensions));
+
+                if (borrowDate.isAfter(today.minusDays(45)) && random.nextInt(3) == 0 &&
+                    onLoan[book] < totalCopies[book] && openLoan(openLoans, user, book)) {
+                    onLoan[book]++;
+                    loans.println(email + "|" + isbn + "|" + borrowDate + "|" + dueDate + "|null|" + extensions);
+                    continue;
+                }
+
+                LocalDate returnDate;
+                boolean late = random.nextDouble() < overdueRate;
+                if (late) {
+                    returnDate = dueDate.plusDays(1 + (long) (-12 * Math.log(1 - random.nextDouble())));
+                } else {
+                    returnDate = borrowDate.plusDays(1 + random.nextInt(LOAN_DAYS * (1 + extensions)));
+                }
+                if (returnDate.isAfter(today)) {
+                    returnDate = today;
+                }
+                loans.println(email + "|" + isbn + "|" + borrowDate + "|" + dueDate + "|" + returnDate + "|" + extensions);
+
+                long daysOverdue = returnDate.toEpochDay() - dueDate.toEpochDay();
+                boolean paid = returnDate.isBefore(today.minusDays(30)) ? random.nextInt(10) != 0 : random.nextBoolean();
+                if (random.nextDouble() < lostRate) {
+                    fines.println(email + "|" + isbn + "|" + Money.format(Money.percentOf(costs[book], 50)) + "|LOST_BOOK|" + returnDate + "|" + paid);
+                } else if (daysOverdue > 0) {
+                    fines.println(email + "|" + isbn + "|" + Money.format(FineSchedule.overdueFine(daysOverdue, costs[book])) + "|OVERDUE|" +
+                        returnDate + "|" + paid);
+                }
+            }
+        }
+        return onLoan;
+    }
+
+    // Records the open loan unless the borrower already has three or holds this title
+    private static boolean openLoan(int[][] openLoans, int user, int book) {
+        int[] open = openLoans[user];
+        if (open == null) {
+            openLoans[user] = new int[] {book};
+            return true;
+        }
+        if (open.length == 3) {
+            return false;
+        }
+        for (int held : open) {
+            if (held == book) {
+                return false;
+            }
+        }
+        open = Arrays.copyOf(open, open.length + 1);
+        open[open.length - 1] = book;
+        openLoans[user] = open;
+        return true;
+    }
+}
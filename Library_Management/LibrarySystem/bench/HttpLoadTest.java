@@ -0,0 +1,279 @@
+package LibrarySystem.bench;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.regex.*;
+
+// Closed-loop load test for the HTTP API (LibrarySystem.Main --http): many
+// clients, each sending its next request as soon as the last one answers,
+// report requests/second and latency percentiles per endpoint. Point it at
+// a server running on a DatasetGenerator dataset, whose borrowers are
+// user<n>@example.com / pw<n>.
+//
+// Usage: java LibrarySystem.bench.HttpLoadTest [--url=http://localhost:8080/api] [--clients=2000]
+//            [--seconds=30] [--warmup=10] [--accounts=50]
+//            [--mix=search:40,catalog:20,book:15,loans:15,borrow:5,return:5]
+//
+// Clients are virtual threads where the JDK has them (21+), platform threads
+// otherwise. Each account logs in once and its clients share the token, so
+// the run measures the API rather than thousands of PBKDF2 logins.
+public class HttpLoadTest {
+    private static final int HISTOGRAM_STRIPES = 64;
+    private static final int CLIENT_STACK_BYTES = 256 * 1024;
+    private static final int ISBN_PAGES = 20;
+    private static final Pattern ISBN = Pattern.compile("\"isbn\":\"([^\"]+)\"");
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    private enum Operation { SEARCH, CATALOG, BOOK, LOANS, BORROW, RETURN }
+
+    private final String baseUrl;
+    private final Operation[] mix;
+    private final List<String> isbns;
+    private final String[] tokens;
+    private final LatencyHistogram[][] latencies = new LatencyHistogram[HISTOGRAM_STRIPES][Operation.values().length];
+    private final long[][] succeeded = new long[HISTOGRAM_STRIPES][Operation.values().length];
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean recording = false;
+    private volatile boolean running = true;
+
+    HttpLoadTest(String baseUrl, Operation[] mix, List<String> isbns, String[] tokens) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.isbns = isbns;
+        this.tokens = tokens;
+        for (LatencyHistogram[] stripe : latencies) {
+            for (int i = 0; i < stripe.length; i++) {
+                stripe[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--")) {
+                options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "true" : arg.substring(equals + 1));
+            }
+        }
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080/api");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "2000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "50"));
+        Operation[] mix = parseMix(options.getOrDefault("mix", "search:40,catalog:20,book:15,loans:15,borrow:5,return:5"));
+
+        // One kept-alive connection per client rather than the default five
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        List<String> isbns = new ArrayList<>();
+        for (int page = 1; page <= ISBN_PAGES; page++) {
+            Response response = request("GET", baseUrl + "/books?size=100&page=" + page, null, null);
+            Matcher matcher = ISBN.matcher(response.body);
+            while (matcher.find()) {
+                isbns.add(matcher.group(1));
+            }
+            if (!response.body.contains("\"hasNext\":true")) {
+                break;
+            }
+        }
+        if (isbns.isEmpty()) {
+            System.out.println("No books at " + baseUrl + "; is the server running?");
+            return;
+        }
+        String[] tokens = new String[accounts];
+        long loginStart = System.nanoTime();
+        for (int i = 0; i < accounts; i++) {
+            Response response = request("POST", baseUrl + "/login", null,
+                "{\"email\":\"" + DatasetGenerator.emailOf(i) + "\",\"password\":\"pw" + i + "\"}");
+            Matcher matcher = TOKEN.matcher(response.body);
+            if (!matcher.find()) {
+                System.out.println("Login failed for " + DatasetGenerator.emailOf(i) + ": " + response.body);
+                return;
+            }
+            tokens[i] = matcher.group(1);
+        }
+        System.out.printf("%d titles sampled, %d accounts logged in (%d ms)%n",
+            isbns.size(), accounts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loginStart));
+
+        new HttpLoadTest(baseUrl, mix, isbns, tokens).run(clients, warmup, seconds);
+    }
+
+    // e.g. "search:40,borrow:5" -> a 100-slot table of operations to draw from
+    private static Operation[] parseMix(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        int total = 0;
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            total += weight;
+        }
+        List<Operation> table = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            for (int i = 0; i < Math.round(100.0 * entry.getValue() / total); i++) {
+                table.add(entry.getKey());
+            }
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    void run(int clients, int warmupSeconds, int seconds) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            threads.add(startClient(() -> loop(client)));
+        }
+        String kind = threads.get(0).getClass().getName().contains("Virtual") ? "virtual" : "platform";
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        recording = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("%d clients (%s threads), %.1f s measured, %d transport errors%n",
+            clients, kind, elapsedSeconds, failures.get());
+        System.out.printf("%-8s %10s %6s %10s %9s %9s %9s %9s %9s%n",
+            "op", "count", "2xx%", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allSucceeded = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long ok = 0;
+            for (int stripe = 0; stripe < HISTOGRAM_STRIPES; stripe++) {
+                histogram.merge(latencies[stripe][operation.ordinal()]);
+                ok += succeeded[stripe][operation.ordinal()];
+            }
+            if (histogram.getCount() > 0) {
+                printRow(operation.name().toLowerCase(), histogram, ok, elapsedSeconds);
+                all.merge(histogram);
+                allSucceeded += ok;
+            }
+        }
+        printRow("total", all, allSucceeded, elapsedSeconds);
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long succeeded, double elapsedSeconds) {
+        System.out.printf("%-8s %10d %6.1f %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            name, histogram.getCount(), 100.0 * succeeded / histogram.getCount(), histogram.getCount() / elapsedSeconds,
+            histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.percentile(99) / 1e6,
+            histogram.percentile(99.9) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    // Thread.startVirtualThread is looked up by reflection so this builds on Java 8
+    private static Thread startClient(Runnable client) {
+        try {
+            Method start = Thread.class.getMethod("startVirtualThread", Runnable.class);
+            return (Thread) start.invoke(null, client);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Thread thread = new Thread(null, client, "load-client", CLIENT_STACK_BYTES);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+    }
+
+    private void loop(int client) {
+        Random random = new Random(1000L + client);
+        String token = tokens[client % tokens.length];
+        int stripe = client % HISTOGRAM_STRIPES;
+        while (running) {
+            Operation operation = mix[random.nextInt(mix.length)];
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = perform(operation, token, random);
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                continue;
+            }
+            long nanos = System.nanoTime() - start;
+            if (recording) {
+                synchronized (latencies[stripe]) {
+                    latencies[stripe][operation.ordinal()].record(nanos);
+                    if (status / 100 == 2) {
+                        succeeded[stripe][operation.ordinal()]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private int perform(Operation operation, String token, Random random) throws IOException {
+        String isbn = isbns.get(random.nextInt(isbns.size()));
+        switch (operation) {
+            case SEARCH:
+                String word = DatasetGenerator.TITLE_WORDS[random.nextInt(DatasetGenerator.TITLE_WORDS.length)];
+                return request("GET", baseUrl + "/books/search?q=" + URLEncoder.encode(word, "UTF-8"), null, null).status;
+            case CATALOG:
+                return request("GET", baseUrl + "/books?page=" + (1 + random.nextInt(ISBN_PAGES)), null, null).status;
+            case BOOK:
+                return request("GET", baseUrl + "/books/" + isbn, null, null).status;
+            case LOANS:
+                return request("GET", baseUrl + "/me/loans", token, null).status;
+            case BORROW:
+                return request("POST", baseUrl + "/borrow", token, "{\"isbn\":\"" + isbn + "\"}").status;
+            case RETURN:
+                Response loans = request("GET", baseUrl + "/me/loans", token, null);
+                Matcher matcher = ISBN.matcher(loans.body);
+                if (!matcher.find()) {
+                    return loans.status;
+                }
+                return request("POST", baseUrl + "/return", token, "{\"isbn\":\"" + matcher.group(1) + "\"}").status;
+            default:
+                return 0;
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    // Reads the whole body either way, so the connection can be reused
+    private static Response request(String method, String url, String token, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return new Response(status, "");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,50 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.metrics.LogLinearBuckets;
+
+// Log-linear latency histogram (see LogLinearBuckets) in nanoseconds.
+// Not thread-safe; give each thread its own and merge them afterwards.
+class LatencyHistogram {
+    private final long[] counts = new long[LogLinearBuckets.COUNT];
+    private long totalCount;
+    private long max;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[LogLinearBuckets.indexOf(value)]++;
+        totalCount++;
+        max = Math.max(max, value);
+    }
+
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    long getCount() {
+        return totalCount;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100)
+    long percentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(totalCount * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, target)) {
+                return Math.min(max, LogLinearBuckets.upperBoundOf(i));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,234 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.books.BookService;
+import LibrarySystem.models.*;
+import LibrarySystem.persistence.Journal;
+import LibrarySystem.transactions.TransactionService;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Headless load driver: loads the data files in the working directory (for
+// example ones written by DatasetGenerator), then runs a mix of desk
+// operations from several threads and reports throughput and latency
+// percentiles per operation. The data files are never written back.
+//
+// Usage: java LibrarySystem.bench.LoadDriver [--threads=4] [--seconds=30] [--warmup=5]
+//            [--mix=borrow:35,return:30,pay:5,search:15,history:15] [--zipf=1.0] [--journal]
+//
+// --journal appends every change to a scratch journal, as the desk
+// application does, and deletes it afterwards.
+public class LoadDriver {
+    private static final String SCRATCH_JOURNAL = "loaddriver-journal.dat";
+    private static final double BORROWER_ACTIVITY_SKEW = 0.6;
+
+    private enum Operation { BORROW, RETURN, PAY, SEARCH, HISTORY }
+
+    private final AuthService authService;
+    private final BookService bookService;
+    private final TransactionService transactionService;
+    private final List<String> borrowers = new ArrayList<>();
+    private final List<String> isbns = new ArrayList<>();
+    private final ZipfSampler bookPopularity;
+    private final ZipfSampler borrowerActivity;
+    private final Operation[] mix;
+
+    private volatile boolean recording = false;
+    private volatile boolean running = true;
+
+    LoadDriver(AuthService authService, BookService bookService, TransactionService transactionService,
+               Operation[] mix, double popularitySkew) {
+        this.authService = authService;
+        this.bookService = bookService;
+        this.transactionService = transactionService;
+        this.mix = mix;
+        for (User user : authService.getAllUsers().values()) {
+            if (user.getRole() == UserRole.BORROWER) {
+                borrowers.add(user.getEmail());
+            }
+        }
+        Collections.sort(borrowers);
+        for (Book book : bookService.getAllBooks()) {
+            isbns.add(book.getIsbn());
+        }
+        Collections.sort(isbns);
+        this.bookPopularity = new ZipfSampler(isbns.size(), popularitySkew, 42L);
+        this.borrowerActivity = new ZipfSampler(borrowers.size(), BORROWER_ACTIVITY_SKEW, 43L);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--")) {
+                options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "true" : arg.substring(equals + 1));
+            }
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        double popularitySkew = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+        Operation[] mix = parseMix(options.getOrDefault("mix", "borrow:35,return:30,pay:5,search:15,history:15"));
+
+        if (!Files.exists(Paths.get("users.txt")) || !Files.exists(Paths.get("books.txt"))) {
+            System.out.println("No library data in " + Paths.get("").toAbsolutePath() +
+                "; generate some first with LibrarySystem.bench.DatasetGenerator.");
+            return;
+        }
+        long loadStart = System.nanoTime();
+        AuthService authService = new AuthService(AuthService.readUsers());
+        BookService bookService = new BookService(BookService.readBooks());
+        TransactionService transactionService = new TransactionService(bookService,
+            TransactionService.readBorrowingRecords(), TransactionService.readFineRecords());
+        System.out.println("Loaded data in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart) + " ms");
+
+        Journal journal = null;
+        if (options.containsKey("journal")) {
+            Files.deleteIfExists(Paths.get(SCRATCH_JOURNAL));
+            journal = new Journal(SCRATCH_JOURNAL);
+            authService.setJournal(journal);
+            bookService.setJournal(journal);
+            transactionService.setJournal(journal);
+        }
+
+        LoadDriver driver = new LoadDriver(authService, bookService, transactionService, mix, popularitySkew);
+        try {
+            driver.run(threads, warmup, seconds);
+        } finally {
+            if (journal != null) {
+                journal.close();
+                Files.deleteIfExists(Paths.get(SCRATCH_JOURNAL));
+            }
+        }
+    }
+
+    // e.g. "borrow:35,return:30" -> a 100-slot table of operations to draw from
+    private static Operation[] parseMix(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        int total = 0;
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            total += weight;
+        }
+        List<Operation> table = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            for (int i = 0; i < Math.round(100.0 * entry.getValue() / total); i++) {
+                table.add(entry.getKey());
+            }
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    void run(int threads, int warmupSeconds, int seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(1000L + i);
+            futures.add(executor.submit(() -> {
+                worker.loop();
+                return worker;
+            }));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        recording = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+
+        LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        long[] succeeded = new long[latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].merge(worker.latencies[i]);
+                succeeded[i] += worker.succeeded[i];
+            }
+        }
+        executor.shutdown();
+        report(threads, elapsedSeconds, latencies, succeeded);
+    }
+
+    private void report(int threads, double elapsedSeconds, LatencyHistogram[] latencies, long[] succeeded) {
+        System.out.printf("%d threads, %.1f s measured, %d borrowers, %d titles%n",
+            threads, elapsedSeconds, borrowers.size(), isbns.size());
+        System.out.printf("%-8s %10s %6s %10s %9s %9s %9s %9s %9s%n",
+            "op", "count", "ok%", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        LatencyHistogram all = new LatencyHistogram();
+        long allSucceeded = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies[operation.ordinal()];
+            if (histogram.getCount() > 0) {
+                printRow(operation.name().toLowerCase(), histogram, succeeded[operation.ordinal()], elapsedSeconds);
+                all.merge(histogram);
+                allSucceeded += succeeded[operation.ordinal()];
+            }
+        }
+        printRow("total", all, allSucceeded, elapsedSeconds);
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long succeeded, double elapsedSeconds) {
+        System.out.printf("%-8s %10d %6.1f %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+            name, histogram.getCount(), 100.0 * succeeded / histogram.getCount(), histogram.getCount() / elapsedSeconds,
+            histogram.percentile(50) / 1000.0, histogram.percentile(90) / 1000.0, histogram.percentile(99) / 1000.0,
+            histogram.percentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+    }
+
+    private class Worker {
+        private final Random random;
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        private final long[] succeeded = new long[latencies.length];
+
+        Worker(long seed) {
+            this.random = new Random(seed);
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void loop() {
+            while (running) {
+                Operation operation = mix[random.nextInt(mix.length)];
+                String email = borrowers.get(borrowerActivity.next(random));
+                long start = System.nanoTime();
+                boolean ok = perform(operation, email);
+                long nanos = System.nanoTime() - start;
+                if (recording) {
+                    latencies[operation.ordinal()].record(nanos);
+                    if (ok) {
+                        succeeded[operation.ordinal()]++;
+                    }
+                }
+            }
+        }
+
+        private boolean perform(Operation operation, String email) {
+            switch (operation) {
+                case BORROW:
+                    String isbn = isbns.get(bookPopularity.next(random));
+                    return transactionService.borrowBookWithChecks(email, isbn, authService) == BorrowResult.SUCCESS;
+                case RETURN:
+                    List<BorrowingRecord> loans = transactionService.getCurrentBorrowedBooks(email);
+                    return !loans.isEmpty() && transactionService.returnBook(email, loans.get(0).getIsbn(), LocalDate.now());
+                case PAY:
+                    return transactionService.payAllUnpaidFinesWithCash(email);
+                case SEARCH:
+                    String word = DatasetGenerator.TITLE_WORDS[random.nextInt(DatasetGenerator.TITLE_WORDS.length)];
+                    return !bookService.searchBooksByTitle(word).isEmpty();
+                case HISTORY:
+                    return !transactionService.getBorrowingHistory(email).isEmpty();
+                default:
+                    return false;
+            }
+        }
+    }
+}
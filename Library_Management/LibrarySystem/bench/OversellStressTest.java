@@ -0,0 +1,127 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.books.BookService;
+import LibrarySystem.models.*;
+import LibrarySystem.transactions.TransactionService;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Stress test for the last copies of a few titles: many threads borrow and
+// return them through TransactionService for a while, as desks serving
+// different borrowers would. Fails (exit status 1) if a title's available
+// count is ever seen below zero, or if at the end available copies plus
+// active loans differ from the copies the title started with.
+//
+// Usage: java LibrarySystem.bench.OversellStressTest [--threads=8] [--seconds=10]
+//            [--titles=3] [--copies=2] [--borrowers=64]
+//
+// Everything is in memory; no data files are read or written.
+public class OversellStressTest {
+    private final AuthService authService;
+    private final TransactionService transactionService;
+    private final List<Book> books;
+    private final List<String> borrowers;
+    private final int copies;
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong returned = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicInteger lowestSeen = new AtomicInteger(Integer.MAX_VALUE);
+
+    private volatile boolean running = true;
+
+    OversellStressTest(int titles, int copies, int borrowerCount) {
+        this.copies = copies;
+        this.books = new ArrayList<>();
+        for (int i = 0; i < titles; i++) {
+            books.add(new Book("STRESS-" + i, "Stress Title " + i, "Stress Author", copies, Money.ofRupees(500)));
+        }
+        List<User> users = new ArrayList<>();
+        this.borrowers = new ArrayList<>();
+        for (int i = 0; i < borrowerCount; i++) {
+            String email = "stress" + i + "@example.com";
+            users.add(new User(email, "Stress Borrower " + i, "pw" + i, UserRole.BORROWER, Money.ofRupees(1000)));
+            borrowers.add(email);
+        }
+        this.authService = new AuthService(users);
+        this.transactionService = new TransactionService(new BookService(books), new ArrayList<>(), new ArrayList<>());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--")) {
+                options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "true" : arg.substring(equals + 1));
+            }
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        int titles = Integer.parseInt(options.getOrDefault("titles", "3"));
+        int copies = Integer.parseInt(options.getOrDefault("copies", "2"));
+        int borrowers = Integer.parseInt(options.getOrDefault("borrowers", "64"));
+
+        boolean passed = new OversellStressTest(titles, copies, borrowers).run(threads, seconds);
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run(int threads, int seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            long seed = 1000L + i;
+            futures.add(executor.submit(() -> loop(new Random(seed))));
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running = false;
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        return check(threads, seconds);
+    }
+
+    // Half borrows, half returns, over random borrower/title pairs
+    private void loop(Random random) {
+        LocalDate today = LocalDate.now();
+        while (running) {
+            String borrower = borrowers.get(random.nextInt(borrowers.size()));
+            Book book = books.get(random.nextInt(books.size()));
+            if (random.nextBoolean()) {
+                BorrowResult result = transactionService.borrowBookWithChecks(borrower, book.getIsbn(), authService);
+                (result == BorrowResult.SUCCESS ? borrowed : refused).incrementAndGet();
+            } else if (transactionService.returnBook(borrower, book.getIsbn(), today)) {
+                returned.incrementAndGet();
+            }
+            int available = book.getAvailableQuantity();
+            if (available < lowestSeen.get()) {
+                lowestSeen.accumulateAndGet(available, Math::min);
+            }
+        }
+    }
+
+    private boolean check(int threads, int seconds) {
+        System.out.printf("%d threads, %d s: %d borrowed, %d returned, %d refused; lowest available count seen %d%n",
+            threads, seconds, borrowed.get(), returned.get(), refused.get(), lowestSeen.get());
+        boolean passed = lowestSeen.get() >= 0;
+        long activeLoans = 0;
+        for (Book book : books) {
+            int available = book.getAvailableQuantity();
+            int onLoan = transactionService.getCurrentBorrowingRecords(book.getIsbn()).size();
+            activeLoans += onLoan;
+            boolean balanced = available >= 0 && available + onLoan == copies;
+            passed &= balanced;
+            System.out.printf("%-10s available %d + on loan %d = %d of %d%s%n",
+                book.getIsbn(), available, onLoan, available + onLoan, copies, balanced ? "" : "  OVERSOLD");
+        }
+        if (activeLoans != borrowed.get() - returned.get()) {
+            System.out.printf("Active loans %d do not match %d borrowed - %d returned%n",
+                activeLoans, borrowed.get(), returned.get());
+            passed = false;
+        }
+        System.out.println(passed ? "PASS: no copy was oversold" : "FAIL: stock and loans disagree");
+        return passed;
+    }
+}
@@ -0,0 +1,43 @@
+package LibrarySystem.bench;
+
+import java.util.*;
+
+// Draws ids 0..n-1 with Zipfian popularity: the k-th most popular id is
+// drawn with weight 1 / k^exponent. Ranks are shuffled onto ids with the
+// given seed so popular titles are spread across the catalog.
+class ZipfSampler {
+    private final double[] cumulative;
+    private final int[] idOfRank;
+
+    ZipfSampler(int n, double exponent, long seed) {
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+
+        idOfRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            idOfRank[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = idOfRank[i];
+            idOfRank[i] = idOfRank[j];
+            idOfRank[j] = swap;
+        }
+    }
+
+    int next(Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (rank < 0) {
+            rank = -rank - 1;
+        }
+        return idOfRank[Math.min(rank, idOfRank.length - 1)];
+    }
+}
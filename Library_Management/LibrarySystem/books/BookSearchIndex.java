@@ -0,0 +1,205 @@
+package LibrarySystem.books;
+
+import LibrarySystem.models.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+// In-memory inverted index over book titles and authors.
+// Substring queries are answered from trigram postings and verified against
+// the cached lowercase text; whole-word tokens are indexed for ranking.
+// Searches share a read lock; catalog edits take the write lock.
+class BookSearchIndex {
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<String, String> titles = new HashMap<>();   // isbn -> lowercase title
+    private Map<String, String> authors = new HashMap<>();  // isbn -> lowercase author
+    private Map<String, Set<String>> titleGrams = new HashMap<>();
+    private Map<String, Set<String>> authorGrams = new HashMap<>();
+    private Map<String, Set<String>> tokens = new HashMap<>();
+
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            addLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void update(Book book) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getIsbn());
+            addLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ISBNs whose title contains the term, ignoring case
+    public List<String> searchTitle(String term) {
+        lock.readLock().lock();
+        try {
+            return substringSearch(normalize(term), titles, titleGrams);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ISBNs whose author contains the term, ignoring case
+    public List<String> searchAuthor(String term) {
+        lock.readLock().lock();
+        try {
+            return substringSearch(normalize(term), authors, authorGrams);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Multi-term query over title and author. Each term scores 2 for a
+    // whole-word match and 1 for a substring match; ISBNs come back in
+    // descending score order.
+    public List<String> search(String query) {
+        lock.readLock().lock();
+        try {
+            return rankedSearch(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(Book book) {
+        String isbn = book.getIsbn();
+        String title = normalize(book.getTitle());
+        String author = normalize(book.getAuthor());
+        titles.put(isbn, title);
+        authors.put(isbn, author);
+        addPostings(titleGrams, grams(title), isbn);
+        addPostings(authorGrams, grams(author), isbn);
+        addPostings(tokens, tokenize(title + " " + author), isbn);
+    }
+
+    private void removeLocked(String isbn) {
+        String title = titles.remove(isbn);
+        String author = authors.remove(isbn);
+        if (title == null) {
+            return;
+        }
+        removePostings(titleGrams, grams(title), isbn);
+        removePostings(authorGrams, grams(author), isbn);
+        removePostings(tokens, tokenize(title + " " + author), isbn);
+    }
+
+    private List<String> rankedSearch(String query) {
+        Map<String, Integer> scores = new HashMap<>();
+        for (String term : tokenize(normalize(query))) {
+            Set<String> matched = new HashSet<>();
+            Set<String> exact = tokens.get(term);
+            if (exact != null) {
+                for (String isbn : exact) {
+                    scores.merge(isbn, 2, Integer::sum);
+                    matched.add(isbn);
+                }
+            }
+            for (String isbn : substringSearch(term, titles, titleGrams)) {
+                if (matched.add(isbn)) {
+                    scores.merge(isbn, 1, Integer::sum);
+                }
+            }
+            for (String isbn : substringSearch(term, authors, authorGrams)) {
+                if (matched.add(isbn)) {
+                    scores.merge(isbn, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<String> results = new ArrayList<>(scores.keySet());
+        results.sort((i1, i2) -> {
+            int byScore = Integer.compare(scores.get(i2), scores.get(i1));
+            return byScore != 0 ? byScore : titles.get(i1).compareTo(titles.get(i2));
+        });
+        return results;
+    }
+
+    private List<String> substringSearch(String term, Map<String, String> texts, Map<String, Set<String>> grams) {
+        List<String> results = new ArrayList<>();
+        if (term.length() < GRAM) {
+            // Too short for trigram postings; the cached lowercase text still avoids per-query allocation
+            for (Map.Entry<String, String> entry : texts.entrySet()) {
+                if (entry.getValue().contains(term)) {
+                    results.add(entry.getKey());
+                }
+            }
+            return results;
+        }
+
+        // Walk the smallest posting list and verify the rest of the term directly
+        Set<String> smallest = null;
+        for (String gram : grams(term)) {
+            Set<String> postings = grams.get(gram);
+            if (postings == null) {
+                return results;
+            }
+            if (smallest == null || postings.size() < smallest.size()) {
+                smallest = postings;
+            }
+        }
+        for (String isbn : smallest) {
+            if (texts.get(isbn).contains(term)) {
+                results.add(isbn);
+            }
+        }
+        return results;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> result = new HashSet<>();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static void addPostings(Map<String, Set<String>> index, Set<String> keys, String isbn) {
+        for (String key : keys) {
+            index.computeIfAbsent(key, k -> new HashSet<>()).add(isbn);
+        }
+    }
+
+    private static void removePostings(Map<String, Set<String>> index, Set<String> keys, String isbn) {
+        for (String key : keys) {
+            Set<String> postings = index.get(key);
+            if (postings != null) {
+                postings.remove(isbn);
+                if (postings.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+}
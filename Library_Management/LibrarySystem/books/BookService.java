@@ -1,16 +1,41 @@
 package LibrarySystem.books;
 
 import LibrarySystem.models.*;
+import LibrarySystem.metrics.*;
+import LibrarySystem.persistence.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.*;
 import java.io.*;
 
 public class BookService {
-    private static final String BOOKS_FILE = "books.txt";
+    public static final String BOOKS_FILE = "books.txt";
+    private static final OperationMetrics SEARCH_TITLE_METRICS = Metrics.operation("books.searchBooksByTitle");
+    private static final OperationMetrics SEARCH_AUTHOR_METRICS = Metrics.operation("books.searchBooksByAuthor");
+    private static final OperationMetrics SEARCH_METRICS = Metrics.operation("books.searchBooks");
     private Map<String, Book> books;
+    private BookSearchIndex searchIndex;
+    private SortedCatalog sortedCatalog;
+    private StockIndex stockIndex;
+    private Journal journal;
+    private Lock changeLock = new ReentrantReadWriteLock().readLock();
+    private final Object addLock = new Object();
     
     public BookService() {
-        this.books = new HashMap<>();
-        loadBooks();
+        this(readBooks());
+    }
+    
+    public BookService(List<Book> loadedBooks) {
+        this.books = new ConcurrentHashMap<>();
+        this.searchIndex = new BookSearchIndex();
+        this.sortedCatalog = new SortedCatalog();
+        this.stockIndex = new StockIndex();
+        for (Book book : loadedBooks) {
+            books.put(book.getIsbn(), book);
+            searchIndex.add(book);
+            stockIndex.add(book);
+        }
+        sortedCatalog.addAll(books.values());
         
         // Add sample books if no books exist
         if (books.isEmpty()) {
@@ -18,16 +43,109 @@ public class BookService {
         }
     }
     
-    public boolean addBook(String isbn, String title, String author, int quantity, double cost) {
-        if (books.containsKey(isbn)) {
-            return false; // Book already exists
+    public static List<Book> readBooks() {
+        try {
+            return DelimitedFileReader.read(BOOKS_FILE, row -> row.fieldCount() == 5 ? parseBook(row.fields()) : null);
+        } catch (IOException e) {
+            System.err.println("Error loading books: " + e.getMessage());
+            return new ArrayList<>();
         }
-        
+    }
+    
+    // The new book is journaled before anyone can borrow it, so its starting
+    // count is logged ahead of every BORROW against it
+    public boolean addBook(String isbn, String title, String author, int quantity, long cost) {
         Book book = new Book(isbn, title, author, quantity, cost);
-        books.put(isbn, book);
+        changeLock.lock();
+        try {
+            synchronized (addLock) {
+                if (books.containsKey(isbn)) {
+                    return false; // Book already exists
+                }
+                journalBook(book);
+                putBook(book);
+                return true;
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    // Edits run under the book's monitor so each one and its event stay in order
+    public void updateTitle(Book book, String title) {
+        changeLock.lock();
+        try {
+            synchronized (book) {
+                book.setTitle(title);
+                searchIndex.update(book);
+                sortedCatalog.update(book);
+                journalBook(book);
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    public void updateAuthor(Book book, String author) {
+        changeLock.lock();
+        try {
+            synchronized (book) {
+                book.setAuthor(author);
+                searchIndex.update(book);
+                journalBook(book);
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    public void updateQuantity(Book book, int quantity) {
+        changeLock.lock();
+        try {
+            synchronized (book) {
+                // Borrows and returns move the count without the monitor, so log the
+                // change rather than the new count; replay then lands on the same total
+                int previous = book.exchangeAvailableQuantity(quantity);
+                sortedCatalog.quantityChanged(book);
+                stockIndex.quantityChanged(book);
+                if (journal != null) {
+                    journal.append(JournalEventType.BOOK_STOCK, book.getIsbn(), String.valueOf(quantity - previous));
+                }
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    public void updateCost(Book book, long cost) {
+        changeLock.lock();
+        try {
+            synchronized (book) {
+                book.setCost(cost);
+                journalBook(book);
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+    
+    // Copies go on and off the shelf through here so the quantity view and
+    // stock index keep up
+    public boolean reserveCopy(Book book) {
+        if (!book.tryReserve()) {
+            return false;
+        }
+        sortedCatalog.quantityChanged(book);
+        stockIndex.quantityChanged(book);
         return true;
     }
     
+    public void releaseCopy(Book book) {
+        book.release();
+        sortedCatalog.quantityChanged(book);
+        stockIndex.quantityChanged(book);
+    }
+    
     public Book getBookByIsbn(String isbn) {
         return books.get(isbn);
     }
@@ -47,52 +165,92 @@ public class BookService {
     }
     
     public List<Book> searchBooksByTitle(String title) {
-        List<Book> results = new ArrayList<>();
-        String searchTerm = title.toLowerCase();
-        for (Book book : books.values()) {
-            if (book.getTitle().toLowerCase().contains(searchTerm)) {
-                results.add(book);
-            }
+        long started = SEARCH_TITLE_METRICS.start();
+        List<Book> found = null;
+        try {
+            found = toBooks(searchIndex.searchTitle(title));
+            return found;
+        } finally {
+            SEARCH_TITLE_METRICS.finish(started, found != null);
         }
-        return results;
     }
     
     public List<Book> searchBooksByAuthor(String author) {
-        List<Book> results = new ArrayList<>();
-        String searchTerm = author.toLowerCase();
-        for (Book book : books.values()) {
-            if (book.getAuthor().toLowerCase().contains(searchTerm)) {
-                results.add(book);
-            }
+        long started = SEARCH_AUTHOR_METRICS.start();
+        List<Book> found = null;
+        try {
+            found = toBooks(searchIndex.searchAuthor(author));
+            return found;
+        } finally {
+            SEARCH_AUTHOR_METRICS.finish(started, found != null);
         }
-        return results;
     }
     
+    // Ranked search across title and author words
+    public List<Book> searchBooks(String query) {
+        long started = SEARCH_METRICS.start();
+        List<Book> found = null;
+        try {
+            found = toBooks(searchIndex.search(query));
+            return found;
+        } finally {
+            SEARCH_METRICS.finish(started, found != null);
+        }
+    }
+    
+    // The sorted views are kept up to date as books change; these copy one out whole
     public List<Book> getBooksSortedByTitle() {
-        List<Book> sortedBooks = new ArrayList<>(books.values());
-        sortedBooks.sort((b1, b2) -> b1.getTitle().compareToIgnoreCase(b2.getTitle()));
-        return sortedBooks;
+        return new ArrayList<>(sortedCatalog.view(CatalogOrder.TITLE).values());
     }
     
     public List<Book> getBooksSortedByQuantity() {
-        List<Book> sortedBooks = new ArrayList<>(books.values());
-        sortedBooks.sort((b1, b2) -> Integer.compare(b2.getAvailableQuantity(), b1.getAvailableQuantity()));
-        return sortedBooks;
+        return new ArrayList<>(sortedCatalog.view(CatalogOrder.QUANTITY).values());
+    }
+    
+    // Page pageNumber (from 1) of the catalog in the given order
+    public CatalogPage getCatalogPage(CatalogOrder order, int pageNumber, int pageSize) {
+        return sortedCatalog.page(order, Math.max(1, pageNumber), Math.max(1, pageSize));
+    }
+    
+    public CatalogPage getNextPage(CatalogPage page) {
+        return sortedCatalog.next(page);
+    }
+    
+    public CatalogPage getPreviousPage(CatalogPage page) {
+        return sortedCatalog.previous(page);
     }
     
+    // Read from the stock index, fewest copies first
     public List<Book> getBooksWithLowQuantity(int threshold) {
-        List<Book> lowQuantityBooks = new ArrayList<>();
-        for (Book book : books.values()) {
-            if (book.getAvailableQuantity() <= threshold) {
-                lowQuantityBooks.add(book);
-            }
-        }
-        lowQuantityBooks.sort((b1, b2) -> Integer.compare(b1.getAvailableQuantity(), b2.getAvailableQuantity()));
-        return lowQuantityBooks;
+        return stockIndex.atOrBelow(threshold);
+    }
+    
+    // The listener hears whenever a title's available copies fall to
+    // threshold or below, and when they rise back above it
+    public void addLowStockListener(int threshold, LowStockListener listener) {
+        stockIndex.subscribe(threshold, listener);
+    }
+    
+    public void removeLowStockListener(LowStockListener listener) {
+        stockIndex.unsubscribe(listener);
     }
     
     public boolean deleteBook(String isbn) {
-        return books.remove(isbn) != null;
+        changeLock.lock();
+        try {
+            if (books.remove(isbn) == null) {
+                return false;
+            }
+            searchIndex.remove(isbn);
+            sortedCatalog.remove(isbn);
+            stockIndex.remove(isbn);
+            if (journal != null) {
+                journal.append(JournalEventType.BOOK_DELETE, isbn);
+            }
+            return true;
+        } finally {
+            changeLock.unlock();
+        }
     }
     
     public Book findBook(String searchTerm) {
@@ -103,47 +261,105 @@ public class BookService {
         }
         
         // Then try to find by title
-        for (Book b : books.values()) {
-            if (b.getTitle().toLowerCase().contains(searchTerm.toLowerCase())) {
-                return b;
-            }
-        }
-        return null;
+        List<String> matches = searchIndex.searchTitle(searchTerm);
+        return matches.isEmpty() ? null : books.get(matches.get(0));
     }
     
-    public void saveBooks() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(BOOKS_FILE))) {
-            for (Book book : books.values()) {
-                writer.println(book.getIsbn() + "|" + book.getTitle() + "|" + 
-                    book.getAuthor() + "|" + book.getAvailableQuantity() + "|" + book.getCost());
-            }
+    public boolean saveBooks() {
+        try {
+            SnapshotFiles.stage(BOOKS_FILE, writer -> {
+                for (Book book : books.values()) {
+                    writer.println(String.join("|", toFields(book)));
+                }
+            });
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving books: " + e.getMessage());
+            return false;
         }
     }
     
-    private void loadBooks() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(BOOKS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length == 5) {
-                    Book book = new Book(parts[0], parts[1], parts[2], 
-                        Integer.parseInt(parts[3]), Double.parseDouble(parts[4]));
-                    books.put(parts[0], book);
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+        this.changeLock = journal.changeLock();
+    }
+    
+    public void applyJournalEvent(JournalEventType type, String[] fields) {
+        switch (type) {
+            case BOOK_PUT:
+                Book book = parseBook(fields);
+                Book existing = books.get(book.getIsbn());
+                if (existing == null) {
+                    putBook(book);
+                } else {
+                    // Keep the same instance; other services hold references to it.
+                    // The count in an edit is whatever it was at the time, and the
+                    // BORROW/RETURN/BOOK_STOCK events already account for it
+                    existing.setTitle(book.getTitle());
+                    existing.setAuthor(book.getAuthor());
+                    existing.setCost(book.getCost());
+                    searchIndex.update(existing);
+                    sortedCatalog.update(existing);
+                }
+                break;
+            case BOOK_STOCK:
+                existing = books.get(fields[0]);
+                if (existing != null) {
+                    existing.setAvailableQuantity(existing.getAvailableQuantity() + Integer.parseInt(fields[1]));
+                    sortedCatalog.quantityChanged(existing);
+                    stockIndex.quantityChanged(existing);
                 }
+                break;
+            case BOOK_DELETE:
+                deleteBook(fields[0]);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static Book parseBook(String[] parts) {
+        return new Book(parts[0], parts[1], parts[2], 
+            Integer.parseInt(parts[3]), Money.parse(parts[4]));
+    }
+    
+    private String[] toFields(Book book) {
+        return new String[] {
+            book.getIsbn(), book.getTitle(), book.getAuthor(),
+            String.valueOf(book.getAvailableQuantity()), Money.format(book.getCost())
+        };
+    }
+    
+    private void journalBook(Book book) {
+        if (journal != null) {
+            journal.append(JournalEventType.BOOK_PUT, toFields(book));
+        }
+    }
+    
+    private void putBook(Book book) {
+        books.put(book.getIsbn(), book);
+        searchIndex.add(book);
+        sortedCatalog.add(book);
+        stockIndex.add(book);
+    }
+    
+    private List<Book> toBooks(List<String> isbns) {
+        List<Book> results = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Book book = books.get(isbn);
+            if (book != null) { // May have been deleted since the index was read
+                results.add(book);
             }
-        } catch (IOException e) {
-            // File doesn't exist yet, which is fine for first run
         }
+        return results;
     }
     
     private void addSampleBooks() {
-        books.put("978-0134685991", new Book("978-0134685991", "Effective Java", "Joshua Bloch", 5, 2500.0));
-        books.put("978-0596009205", new Book("978-0596009205", "Head First Design Patterns", "Eric Freeman", 3, 2200.0));
-        books.put("978-0132350884", new Book("978-0132350884", "Clean Code", "Robert Martin", 4, 2800.0));
-        books.put("978-0321356680", new Book("978-0321356680", "Effective Java Programming", "Joshua Bloch", 2, 2600.0));
-        books.put("978-0201633610", new Book("978-0201633610", "Design Patterns", "Gang of Four", 3, 3000.0));
+        putBook(new Book("978-0134685991", "Effective Java", "Joshua Bloch", 5, Money.ofRupees(2500)));
+        putBook(new Book("978-0596009205", "Head First Design Patterns", "Eric Freeman", 3, Money.ofRupees(2200)));
+        putBook(new Book("978-0132350884", "Clean Code", "Robert Martin", 4, Money.ofRupees(2800)));
+        putBook(new Book("978-0321356680", "Effective Java Programming", "Joshua Bloch", 2, Money.ofRupees(2600)));
+        putBook(new Book("978-0201633610", "Design Patterns", "Gang of Four", 3, Money.ofRupees(3000)));
         System.out.println("Sample books added to the library.");
     }
 }
@@ -0,0 +1,6 @@
+package LibrarySystem.books;
+
+public enum CatalogOrder {
+    TITLE,    // A to Z, ignoring case
+    QUANTITY  // Most copies available first
+}
@@ -0,0 +1,40 @@
+package LibrarySystem.books;
+
+import LibrarySystem.models.*;
+import java.util.*;
+
+// One page of a sorted catalog view. It remembers where it starts and ends,
+// so the next and previous pages are found directly rather than by counting.
+public class CatalogPage {
+    private final CatalogOrder order;
+    private final int pageNumber;
+    private final int pageSize;
+    private final int pageCount;
+    private final List<Book> books;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+    final SortedCatalog.Key firstKey;
+    final SortedCatalog.Key lastKey;
+    
+    CatalogPage(CatalogOrder order, int pageNumber, int pageSize, int pageCount, List<Book> books,
+                boolean hasNext, boolean hasPrevious, SortedCatalog.Key firstKey, SortedCatalog.Key lastKey) {
+        this.order = order;
+        this.pageNumber = pageNumber;
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.books = books;
+        this.hasNext = hasNext;
+        this.hasPrevious = hasPrevious;
+        this.firstKey = firstKey;
+        this.lastKey = lastKey;
+    }
+    
+    // Getters
+    public CatalogOrder getOrder() { return order; }
+    public int getPageNumber() { return pageNumber; }
+    public int getPageSize() { return pageSize; }
+    public int getPageCount() { return pageCount; } // As of when the page was read
+    public List<Book> getBooks() { return books; }
+    public boolean hasNext() { return hasNext; }
+    public boolean hasPrevious() { return hasPrevious; }
+}
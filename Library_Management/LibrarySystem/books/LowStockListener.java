@@ -0,0 +1,15 @@
+package LibrarySystem.books;
+
+import LibrarySystem.models.*;
+
+// Told when a title's available copies cross the threshold it was added
+// with (see BookService.addLowStockListener). Calls arrive in order for each
+// title, on the thread that changed the stock, so hand slow work elsewhere.
+public interface LowStockListener {
+    // Fell from above the threshold to at or below it
+    void onLowStock(Book book, int availableQuantity);
+    
+    // Rose back above the threshold
+    default void onRestocked(Book book, int availableQuantity) {
+    }
+}
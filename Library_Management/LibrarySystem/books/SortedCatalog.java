@@ -0,0 +1,217 @@
+package LibrarySystem.books;
+
+import LibrarySystem.models.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// The catalog kept in title order and in quantity order (most copies first),
+// so listing a page costs the page, not a sort of every book. Titles are
+// case-folded once per change, matching compareToIgnoreCase; ties go by ISBN.
+//
+// Each book's current key lives in keys; a change computes on that entry,
+// which serializes changes to one book while other books proceed. The new
+// key is inserted before the old one is removed, so a reader may briefly
+// see a book twice but never misses it.
+//
+// Borrows and returns change quantities far more often than anyone pages
+// through the quantity view, so they only mark the book stale; the view
+// repositions stale books (O(log n) each) before it is read.
+class SortedCatalog {
+    static final Comparator<Key> TITLE_ORDER = (a, b) -> {
+        int order = a.foldedTitle.compareTo(b.foldedTitle);
+        return order != 0 ? order : a.isbn.compareTo(b.isbn);
+    };
+    static final Comparator<Key> QUANTITY_ORDER = (a, b) -> {
+        int order = Integer.compare(b.quantity, a.quantity);
+        return order != 0 ? order : TITLE_ORDER.compare(a, b);
+    };
+
+    private final ConcurrentHashMap<String, Key> keys = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Key, Book> byTitle = new ConcurrentSkipListMap<>(TITLE_ORDER);
+    private final ConcurrentSkipListMap<Key, Book> byQuantity = new ConcurrentSkipListMap<>(QUANTITY_ORDER);
+    private final Set<String> staleQuantities = ConcurrentHashMap.newKeySet();
+
+    // A book's position at the time it was indexed
+    static final class Key {
+        final String foldedTitle;
+        final int quantity;
+        final String isbn;
+        final Book book;
+
+        Key(String foldedTitle, int quantity, Book book) {
+            this.foldedTitle = foldedTitle;
+            this.quantity = quantity;
+            this.isbn = book.getIsbn();
+            this.book = book;
+        }
+    }
+
+    public void add(Book book) {
+        keys.compute(book.getIsbn(), (isbn, old) -> {
+            Key key = new Key(fold(book.getTitle()), book.getAvailableQuantity(), book);
+            replace(old, key, book);
+            return key;
+        });
+    }
+
+    // Bulk load into an empty catalog. Titles are sorted once; quantity order
+    // breaks ties by title, so a stable sort on quantity alone gives it. Both
+    // skip lists are then filled in order, which only touches their tails.
+    public void addAll(Collection<Book> books) {
+        List<Map.Entry<Key, Book>> sorted = new ArrayList<>(books.size());
+        for (Book book : books) {
+            Key key = new Key(fold(book.getTitle()), book.getAvailableQuantity(), book);
+            if (keys.putIfAbsent(key.isbn, key) == null) {
+                sorted.add(new AbstractMap.SimpleImmutableEntry<>(key, book));
+            }
+        }
+        sorted.sort(Map.Entry.comparingByKey(TITLE_ORDER));
+        for (Map.Entry<Key, Book> entry : sorted) {
+            byTitle.put(entry.getKey(), entry.getValue());
+        }
+        sorted.sort((a, b) -> Integer.compare(b.getKey().quantity, a.getKey().quantity));
+        for (Map.Entry<Key, Book> entry : sorted) {
+            byQuantity.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Re-reads the title and quantity; does nothing for books not in the catalog
+    public void update(Book book) {
+        keys.computeIfPresent(book.getIsbn(), (isbn, old) -> {
+            String foldedTitle = fold(book.getTitle());
+            int quantity = book.getAvailableQuantity();
+            if (quantity == old.quantity && foldedTitle.equals(old.foldedTitle)) {
+                return old;
+            }
+            Key key = new Key(foldedTitle, quantity, book);
+            replace(old, key, book);
+            return key;
+        });
+    }
+
+    // Only the quantity moved, e.g. a copy was borrowed or returned
+    public void quantityChanged(Book book) {
+        staleQuantities.add(book.getIsbn());
+    }
+
+    // A book is unmarked before its quantity is read, so a change racing
+    // with this marks it again for the next reader
+    private void refreshQuantities() {
+        for (Iterator<String> stale = staleQuantities.iterator(); stale.hasNext(); ) {
+            String isbn = stale.next();
+            stale.remove();
+            keys.computeIfPresent(isbn, (key, old) -> {
+                int quantity = old.book.getAvailableQuantity();
+                if (quantity == old.quantity) {
+                    return old;
+                }
+                Key moved = new Key(old.foldedTitle, quantity, old.book);
+                byQuantity.put(moved, old.book);
+                byQuantity.remove(old);
+                return moved;
+            });
+        }
+    }
+
+    public void remove(String isbn) {
+        keys.computeIfPresent(isbn, (key, old) -> {
+            byTitle.remove(old);
+            byQuantity.remove(old);
+            return null;
+        });
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public NavigableMap<Key, Book> view(CatalogOrder order) {
+        if (order == CatalogOrder.TITLE) {
+            return byTitle;
+        }
+        refreshQuantities();
+        return byQuantity;
+    }
+
+    // Page numbers count from 1. Reaching page N steps over the books before
+    // it, which is still far cheaper than sorting; next and previous start
+    // from the edge of the page in hand.
+    public CatalogPage page(CatalogOrder order, int pageNumber, int pageSize) {
+        Iterator<Map.Entry<Key, Book>> entries = view(order).entrySet().iterator();
+        for (long skip = (long) (pageNumber - 1) * pageSize; skip > 0 && entries.hasNext(); skip--) {
+            entries.next();
+        }
+        return collect(order, pageNumber, pageSize, entries, pageNumber > 1, false);
+    }
+
+    public CatalogPage next(CatalogPage page) {
+        if (page.lastKey == null) {
+            return page(page.getOrder(), 1, page.getPageSize());
+        }
+        Iterator<Map.Entry<Key, Book>> entries = view(page.getOrder()).tailMap(page.lastKey, false).entrySet().iterator();
+        return collect(page.getOrder(), page.getPageNumber() + 1, page.getPageSize(), entries, true, false);
+    }
+
+    public CatalogPage previous(CatalogPage page) {
+        if (page.firstKey == null || page.getPageNumber() <= 1) {
+            return page(page.getOrder(), 1, page.getPageSize());
+        }
+        Iterator<Map.Entry<Key, Book>> entries = view(page.getOrder()).headMap(page.firstKey, false).descendingMap().entrySet().iterator();
+        return collect(page.getOrder(), page.getPageNumber() - 1, page.getPageSize(), entries, false, true);
+    }
+
+    // Takes one entry past the page to learn whether there is more in that direction
+    private CatalogPage collect(CatalogOrder order, int pageNumber, int pageSize, Iterator<Map.Entry<Key, Book>> entries,
+                                boolean hasPrevious, boolean backwards) {
+        List<Book> books = new ArrayList<>(pageSize);
+        Key firstKey = null;
+        Key lastKey = null;
+        while (books.size() < pageSize && entries.hasNext()) {
+            Map.Entry<Key, Book> entry = entries.next();
+            if (firstKey == null) {
+                firstKey = entry.getKey();
+            }
+            lastKey = entry.getKey();
+            books.add(entry.getValue());
+        }
+        boolean more = entries.hasNext();
+        int pageCount = Math.max(1, (size() + pageSize - 1) / pageSize);
+        if (backwards) {
+            Collections.reverse(books);
+            // Page numbers drift if books were added meanwhile; the first page is always 1
+            return new CatalogPage(order, more ? Math.max(pageNumber, 2) : 1, pageSize, pageCount, books,
+                true, more, lastKey, firstKey);
+        }
+        return new CatalogPage(order, pageNumber, pageSize, pageCount, books, more, hasPrevious, firstKey, lastKey);
+    }
+
+    private void replace(Key old, Key key, Book book) {
+        byTitle.put(key, book);
+        byQuantity.put(key, book);
+        if (old != null) {
+            if (TITLE_ORDER.compare(old, key) != 0) {
+                byTitle.remove(old);
+            }
+            if (QUANTITY_ORDER.compare(old, key) != 0) {
+                byQuantity.remove(old);
+            }
+        }
+    }
+
+    // Folds each character as compareToIgnoreCase does, so plain String
+    // comparison of folded titles gives the same order
+    static String fold(String text) {
+        char[] folded = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c) {
+                if (folded == null) {
+                    folded = text.toCharArray();
+                }
+                folded[i] = f;
+            }
+        }
+        return folded == null ? text : new String(folded);
+    }
+}
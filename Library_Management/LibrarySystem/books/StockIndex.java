@@ -0,0 +1,118 @@
+package LibrarySystem.books;
+
+import LibrarySystem.models.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Titles bucketed by available quantity, so "quantity <= T" reads the first
+// few buckets instead of the whole catalog, plus low-stock listeners that
+// fire when a title's quantity crosses their threshold.
+//
+// Each title's indexed quantity is moved under that title's Stock monitor,
+// so moves and listener calls for one title are in order. A change is taken
+// from the book's live quantity, so two racing changes may be seen as one.
+class StockIndex {
+    private final ConcurrentHashMap<String, Stock> stockByIsbn = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Set<Book>> booksByQuantity = new ConcurrentSkipListMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private static final class Stock {
+        final Book book;
+        int quantity;
+        boolean removed = false;
+
+        Stock(Book book) {
+            this.book = book;
+        }
+    }
+
+    private static final class Subscription {
+        final int threshold;
+        final LowStockListener listener;
+
+        Subscription(int threshold, LowStockListener listener) {
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+    }
+
+    public void add(Book book) {
+        Stock stock = new Stock(book);
+        synchronized (stock) {
+            Stock old = stockByIsbn.put(book.getIsbn(), stock);
+            if (old != null) {
+                removeStock(old);
+            }
+            stock.quantity = book.getAvailableQuantity();
+            bucket(stock.quantity).add(book);
+        }
+    }
+
+    public void remove(String isbn) {
+        Stock stock = stockByIsbn.remove(isbn);
+        if (stock != null) {
+            removeStock(stock);
+        }
+    }
+
+    public void quantityChanged(Book book) {
+        Stock stock = stockByIsbn.get(book.getIsbn());
+        if (stock == null) {
+            return;
+        }
+        synchronized (stock) {
+            int before = stock.quantity;
+            int after = book.getAvailableQuantity();
+            if (stock.removed || before == after) {
+                return;
+            }
+            bucket(after).add(book);
+            bucket(before).remove(book);
+            stock.quantity = after;
+            for (Subscription subscription : subscriptions) {
+                if (before > subscription.threshold && after <= subscription.threshold) {
+                    subscription.listener.onLowStock(book, after);
+                } else if (before <= subscription.threshold && after > subscription.threshold) {
+                    subscription.listener.onRestocked(book, after);
+                }
+            }
+        }
+    }
+
+    // Fewest copies first
+    public List<Book> atOrBelow(int threshold) {
+        List<Book> books = new ArrayList<>();
+        for (Set<Book> bucket : booksByQuantity.headMap(threshold, true).values()) {
+            books.addAll(bucket);
+        }
+        return books;
+    }
+
+    public void subscribe(int threshold, LowStockListener listener) {
+        subscriptions.add(new Subscription(threshold, listener));
+    }
+
+    public void unsubscribe(LowStockListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    private void removeStock(Stock stock) {
+        synchronized (stock) {
+            stock.removed = true;
+            bucket(stock.quantity).remove(stock.book);
+        }
+    }
+
+    // Buckets stay once made; there are only as many as distinct quantities
+    private Set<Book> bucket(int quantity) {
+        Set<Book> bucket = booksByQuantity.get(quantity);
+        if (bucket == null) {
+            Set<Book> created = ConcurrentHashMap.newKeySet();
+            bucket = booksByQuantity.putIfAbsent(quantity, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,78 @@
+package LibrarySystem.metrics;
+
+import java.util.concurrent.atomic.*;
+
+// Log-linear latency histogram that any number of threads record into
+// without locking: one atomic increment per value, plus an adder for the
+// mean. The maximum is only written when a value beats it.
+public final class Histogram {
+    private final AtomicLongArray counts = new AtomicLongArray(LogLinearBuckets.COUNT);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.incrementAndGet(LogLinearBuckets.indexOf(clamped));
+        total.add(clamped);
+        long currentMax = max.get();
+        while (clamped > currentMax && !max.compareAndSet(currentMax, clamped)) {
+            currentMax = max.get();
+        }
+    }
+
+    // A copy to read percentiles from; values recorded meanwhile may or may not be in it
+    public Snapshot snapshot() {
+        long[] copy = new long[LogLinearBuckets.COUNT];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, total.sum(), max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        max.set(0);
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        // Upper bound of the bucket holding the given percentile (0-100)
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(max, LogLinearBuckets.upperBoundOf(i));
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package LibrarySystem.metrics;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.management.*;
+
+// Process-wide registry of operation metrics, named "<service>.<method>".
+// Services look their operations up once into static fields; recording is
+// then a clock read, an atomic increment and an adder per call.
+//
+// Once registerMBeans has been called, every operation (including ones
+// created later) also shows up over JMX as
+// LibrarySystem:type=Operation,name=<operation>.
+public final class Metrics {
+    private static final String MBEAN_DOMAIN = "LibrarySystem";
+
+    private static final ConcurrentSkipListMap<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private static volatile boolean enabled = true;
+    private static MBeanServer mbeanServer;
+
+    private Metrics() {
+    }
+
+    public static OperationMetrics operation(String name) {
+        OperationMetrics existing = operations.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        OperationMetrics created = new OperationMetrics(name);
+        existing = operations.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (Metrics.class) {
+            if (mbeanServer != null) {
+                register(created);
+            }
+        }
+        return created;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Off, operations skip the clock entirely; counts already taken are kept
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static Collection<OperationMetrics> operations() {
+        return Collections.unmodifiableCollection(operations.values());
+    }
+
+    public static synchronized void registerMBeans() {
+        if (mbeanServer != null) {
+            return;
+        }
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics operation : operations.values()) {
+            register(operation);
+        }
+    }
+
+    private static void register(OperationMetrics operation) {
+        try {
+            ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=Operation,name=" + ObjectName.quote(operation.getName()));
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(operation, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering metrics for " + operation.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // One line per operation that has been called, times in microseconds
+    public static void writeText(PrintWriter writer) {
+        writer.printf("%-40s %10s %8s %10s %10s %10s %10s %10s%n",
+            "operation", "count", "failed", "mean us", "p50 us", "p99 us", "p99.9 us", "max us");
+        for (OperationMetrics operation : operations.values()) {
+            Histogram.Snapshot snapshot = operation.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            writer.printf("%-40s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                operation.getName(), snapshot.getCount(), operation.getFailures(), snapshot.getMean() / 1000.0,
+                snapshot.percentile(50) / 1000.0, snapshot.percentile(99) / 1000.0,
+                snapshot.percentile(99.9) / 1000.0, snapshot.getMax() / 1000.0);
+        }
+    }
+
+    // {"operations":[{"name":...,"count":...,"failures":...,"meanMicros":...,...}]}
+    public static void writeJson(PrintWriter writer) {
+        writer.print("{\"operations\":[");
+        boolean first = true;
+        for (OperationMetrics operation : operations.values()) {
+            Histogram.Snapshot snapshot = operation.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            if (!first) {
+                writer.print(',');
+            }
+            first = false;
+            writer.printf(Locale.ROOT,
+                "{\"name\":\"%s\",\"count\":%d,\"failures\":%d,\"meanMicros\":%.1f,"
+                    + "\"p50Micros\":%.1f,\"p99Micros\":%.1f,\"p999Micros\":%.1f,\"maxMicros\":%.1f}",
+                operation.getName(), snapshot.getCount(), operation.getFailures(), snapshot.getMean() / 1000.0,
+                snapshot.percentile(50) / 1000.0, snapshot.percentile(99) / 1000.0,
+                snapshot.percentile(99.9) / 1000.0, snapshot.getMax() / 1000.0);
+        }
+        writer.println("]}");
+    }
+}
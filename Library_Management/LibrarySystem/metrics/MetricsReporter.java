@@ -0,0 +1,56 @@
+package LibrarySystem.metrics;
+
+import LibrarySystem.persistence.SnapshotFiles;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+// Rewrites a text and a JSON dump of Metrics every so often (and once more
+// on stop), each swapped in whole so a reader never sees half a file.
+public class MetricsReporter {
+    private final String textFile;
+    private final String jsonFile;
+    private final long periodSeconds;
+    private ScheduledExecutorService scheduler;
+
+    public MetricsReporter(String textFile, String jsonFile, long periodSeconds) {
+        this.textFile = textFile;
+        this.jsonFile = jsonFile;
+        this.periodSeconds = periodSeconds;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::dump, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        dump();
+    }
+
+    public void dump() {
+        try {
+            SnapshotFiles.write(textFile, Metrics::writeText);
+            SnapshotFiles.write(jsonFile, Metrics::writeJson);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+}
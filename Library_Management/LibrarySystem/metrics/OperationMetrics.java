@@ -0,0 +1,86 @@
+package LibrarySystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and outcome counts for one service operation. Call sites keep the
+// instance in a static field and bracket the work:
+//
+//   long start = BORROW_METRICS.start();
+//   ...
+//   BORROW_METRICS.finish(start, succeeded);
+//
+// While Metrics is disabled, start returns a marker and finish does nothing.
+public final class OperationMetrics implements OperationMetricsMXBean {
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final String name;
+    private final Histogram latencyNanos = new Histogram();
+    private final LongAdder failures = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long start() {
+        return Metrics.isEnabled() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    public void finish(long start, boolean succeeded) {
+        if (start == NOT_TIMED) {
+            return;
+        }
+        latencyNanos.record(System.nanoTime() - start);
+        if (!succeeded) {
+            failures.increment();
+        }
+    }
+
+    public Histogram.Snapshot snapshot() {
+        return latencyNanos.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return latencyNanos.snapshot().getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencyNanos.snapshot().getMean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencyNanos.snapshot().percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencyNanos.snapshot().percentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencyNanos.snapshot().percentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencyNanos.snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latencyNanos.reset();
+        failures.reset();
+    }
+}
@@ -0,0 +1,14 @@
+package LibrarySystem.metrics;
+
+// One service operation as seen over JMX, e.g. in JConsole under
+// LibrarySystem/Operation. Times are in microseconds since the last reset.
+public interface OperationMetricsMXBean {
+    long getCount();
+    long getFailures();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
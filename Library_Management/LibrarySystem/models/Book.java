@@ -1,13 +1,18 @@
 package LibrarySystem.models;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 public class Book {
+    private static final AtomicIntegerFieldUpdater<Book> AVAILABLE =
+        AtomicIntegerFieldUpdater.newUpdater(Book.class, "availableQuantity");
+    
     private String isbn;
     private String title;
     private String author;
-    private int availableQuantity;
-    private double cost;
+    private volatile int availableQuantity; // Updated with CAS through AVAILABLE
+    private long cost; // Paise, see Money
     
-    public Book(String isbn, String title, String author, int availableQuantity, double cost) {
+    public Book(String isbn, String title, String author, int availableQuantity, long cost) {
         this.isbn = isbn;
         this.title = title;
         this.author = author;
@@ -23,12 +28,35 @@ public class Book {
     public void setAuthor(String author) { this.author = author; }
     public int getAvailableQuantity() { return availableQuantity; }
     public void setAvailableQuantity(int availableQuantity) { this.availableQuantity = availableQuantity; }
-    public double getCost() { return cost; }
-    public void setCost(double cost) { this.cost = cost; }
+    
+    // Takes one copy off the shelf if any is left; the count never goes negative
+    public boolean tryReserve() {
+        while (true) {
+            int available = availableQuantity;
+            if (available <= 0) {
+                return false;
+            }
+            if (AVAILABLE.compareAndSet(this, available, available - 1)) {
+                return true;
+            }
+        }
+    }
+    
+    // Puts a copy back on the shelf
+    public void release() {
+        AVAILABLE.incrementAndGet(this);
+    }
+    
+    // Sets the count and returns the one it replaced, so the change is known exactly
+    public int exchangeAvailableQuantity(int quantity) {
+        return AVAILABLE.getAndSet(this, quantity);
+    }
+    public long getCost() { return cost; }
+    public void setCost(long cost) { this.cost = cost; }
     
     @Override
     public String toString() {
         return "Book{ISBN='" + isbn + "', title='" + title + "', author='" + author + 
-               "', available=" + availableQuantity + ", cost=Rs." + cost + "}";
+               "', available=" + availableQuantity + ", cost=Rs." + Money.format(cost) + "}";
     }
 }
@@ -6,5 +6,6 @@ public enum BorrowResult {
     BOOK_NOT_AVAILABLE,
     ALREADY_BORROWED,
     HAS_UNPAID_FINES,
-    INSUFFICIENT_BALANCE
+    INSUFFICIENT_BALANCE,
+    CART_NOT_BORROWED // Fine on its own, but another book in the cart failed
 }
@@ -3,23 +3,30 @@ package LibrarySystem.models;
 import java.time.LocalDate;
 
 public class BorrowingRecord {
-    private String borrowerEmail;
-    private String isbn;
+    // Ids in SymbolTable.EMAILS and SymbolTable.ISBNS
+    private int borrowerId;
+    private int isbnId;
     private LocalDate borrowDate;
     private LocalDate dueDate;
     private LocalDate returnDate;
     private int extensions = 0;
     
     public BorrowingRecord(String borrowerEmail, String isbn, LocalDate borrowDate, LocalDate dueDate) {
-        this.borrowerEmail = borrowerEmail;
-        this.isbn = isbn;
+        this(SymbolTable.EMAILS.idOf(borrowerEmail), SymbolTable.ISBNS.idOf(isbn), borrowDate, dueDate);
+    }
+    
+    public BorrowingRecord(int borrowerId, int isbnId, LocalDate borrowDate, LocalDate dueDate) {
+        this.borrowerId = borrowerId;
+        this.isbnId = isbnId;
         this.borrowDate = borrowDate;
         this.dueDate = dueDate;
     }
     
     // Getters and Setters
-    public String getBorrowerEmail() { return borrowerEmail; }
-    public String getIsbn() { return isbn; }
+    public String getBorrowerEmail() { return SymbolTable.EMAILS.nameOf(borrowerId); }
+    public int getBorrowerId() { return borrowerId; }
+    public String getIsbn() { return SymbolTable.ISBNS.nameOf(isbnId); }
+    public int getIsbnId() { return isbnId; }
     public LocalDate getBorrowDate() { return borrowDate; }
     public LocalDate getDueDate() { return dueDate; }
     public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
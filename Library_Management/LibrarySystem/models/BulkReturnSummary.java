@@ -0,0 +1,27 @@
+package LibrarySystem.models;
+
+import java.util.*;
+
+// Outcome of processing a batch of returns
+public class BulkReturnSummary {
+    private List<ReturnRequest> returned = new ArrayList<>();
+    private List<ReturnRequest> unmatched = new ArrayList<>(); // No active loan, or listed twice
+    private List<FineRecord> finesRaised = new ArrayList<>();
+    
+    public void addReturned(ReturnRequest request) { returned.add(request); }
+    public void addUnmatched(ReturnRequest request) { unmatched.add(request); }
+    public void addFine(FineRecord fine) { finesRaised.add(fine); }
+    
+    // Getters
+    public List<ReturnRequest> getReturned() { return returned; }
+    public List<ReturnRequest> getUnmatched() { return unmatched; }
+    public List<FineRecord> getFinesRaised() { return finesRaised; }
+    
+    public long getTotalFines() {
+        long total = 0;
+        for (FineRecord fine : finesRaised) {
+            total += fine.getAmount();
+        }
+        return total;
+    }
+}
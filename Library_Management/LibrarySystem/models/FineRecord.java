@@ -3,25 +3,28 @@ package LibrarySystem.models;
 import java.time.LocalDate;
 
 public class FineRecord {
-    private String borrowerEmail;
-    private String isbn;
-    private double amount;
+    // Ids in SymbolTable.EMAILS and SymbolTable.ISBNS
+    private int borrowerId;
+    private int isbnId;
+    private long amount; // Paise, see Money
     private FineReason reason;
     private LocalDate fineDate;
     private boolean paid = false;
     
-    public FineRecord(String borrowerEmail, String isbn, double amount, FineReason reason, LocalDate fineDate) {
-        this.borrowerEmail = borrowerEmail;
-        this.isbn = isbn;
+    public FineRecord(String borrowerEmail, String isbn, long amount, FineReason reason, LocalDate fineDate) {
+        this.borrowerId = SymbolTable.EMAILS.idOf(borrowerEmail);
+        this.isbnId = SymbolTable.ISBNS.idOf(isbn);
         this.amount = amount;
         this.reason = reason;
         this.fineDate = fineDate;
     }
     
     // Getters and Setters
-    public String getBorrowerEmail() { return borrowerEmail; }
-    public String getIsbn() { return isbn; }
-    public double getAmount() { return amount; }
+    public String getBorrowerEmail() { return SymbolTable.EMAILS.nameOf(borrowerId); }
+    public int getBorrowerId() { return borrowerId; }
+    public String getIsbn() { return SymbolTable.ISBNS.nameOf(isbnId); }
+    public int getIsbnId() { return isbnId; }
+    public long getAmount() { return amount; }
     public FineReason getReason() { return reason; }
     public LocalDate getFineDate() { return fineDate; }
     public boolean isPaid() { return paid; }
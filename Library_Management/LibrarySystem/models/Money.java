@@ -0,0 +1,74 @@
+package LibrarySystem.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Money is held as a long count of paise (1/100 rupee), so sums and balances
+// are exact and arithmetic allocates nothing. As text, on screen and in the
+// data files, amounts stay in rupees with two decimals ("1500.00").
+public final class Money {
+    public static final long PAISE_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    public static long ofRupees(long rupees) {
+        return rupees * PAISE_PER_RUPEE;
+    }
+
+    // A percentage of an amount, rounded half up to the paisa
+    public static long percentOf(long paise, int percent) {
+        long scaled = paise * percent;
+        return (scaled + (scaled >= 0 ? 50 : -50)) / 100;
+    }
+
+    // Rupees as typed or stored: "1500", "480.5", "0.30000000000000004".
+    // Digits past the paisa round half up; anything else (e.g. "1.0E7" from
+    // files written when amounts were doubles) goes through BigDecimal.
+    public static long parse(String text) {
+        String value = text.trim();
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long rupees = 0;
+        int digits = 0;
+        while (i < length && Character.isDigit(value.charAt(i)) && digits < 15) {
+            rupees = rupees * 10 + (value.charAt(i++) - '0');
+            digits++;
+        }
+        long paise = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && Character.isDigit(value.charAt(i))) {
+                int digit = value.charAt(i++) - '0';
+                if (fractionDigits < 2) {
+                    paise = paise * 10 + digit;
+                } else if (fractionDigits == 2) {
+                    roundUp = digit >= 5;
+                }
+                fractionDigits++;
+                digits++;
+            }
+        }
+        if (i < length || digits == 0) {
+            return new BigDecimal(value).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+        for (int scale = fractionDigits; scale < 2; scale++) {
+            paise *= 10;
+        }
+        long amount = rupees * PAISE_PER_RUPEE + paise + (roundUp ? 1 : 0);
+        return negative ? -amount : amount;
+    }
+
+    public static String format(long paise) {
+        long rupees = Math.abs(paise / PAISE_PER_RUPEE);
+        long fraction = Math.abs(paise % PAISE_PER_RUPEE);
+        return (paise < 0 ? "-" : "") + rupees + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,27 @@
+package LibrarySystem.models;
+
+import java.time.LocalDate;
+
+// One book out of the return bin. Kept as plain text until matched to a
+// loan, so unknown emails and ISBNs are never added to the symbol tables.
+public class ReturnRequest {
+    private String isbn;
+    private String borrowerEmail;
+    private LocalDate returnDate;
+    
+    public ReturnRequest(String isbn, String borrowerEmail, LocalDate returnDate) {
+        this.isbn = isbn;
+        this.borrowerEmail = borrowerEmail;
+        this.returnDate = returnDate;
+    }
+    
+    // Getters
+    public String getIsbn() { return isbn; }
+    public String getBorrowerEmail() { return borrowerEmail; }
+    public LocalDate getReturnDate() { return returnDate; }
+    
+    @Override
+    public String toString() {
+        return isbn + " from " + borrowerEmail + " on " + returnDate;
+    }
+}
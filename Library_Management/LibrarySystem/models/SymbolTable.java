@@ -0,0 +1,54 @@
+package LibrarySystem.models;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps strings to dense int ids so every record shares one copy of each
+// borrower email and ISBN, and hot comparisons are int compares.
+public class SymbolTable {
+    public static final SymbolTable EMAILS = new SymbolTable();
+    public static final SymbolTable ISBNS = new SymbolTable();
+
+    public static final int UNKNOWN = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private volatile int size = 0;
+
+    // Returns the id for the symbol, assigning the next id the first time it is seen
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : assign(name);
+    }
+
+    // Returns the id for the symbol, or UNKNOWN if it has never been seen
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : UNKNOWN;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized int assign(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, id * 2);
+        }
+        current[id] = name;
+        names = current;
+        size = id + 1;
+        ids.put(name, id); // Published last, so nameOf(id) is valid for anyone who sees the id
+        return id;
+    }
+}
@@ -5,17 +5,18 @@ public class User {
     private String name;
     private String password;
     private UserRole role;
-    private double securityDeposit;
-    private double accountBalance = 0.0; // Account balance for payments
-    private double fineLimit = 1000.0; // Default fine limit
+    // Amounts in paise, see Money
+    private long securityDeposit;
+    private long accountBalance = 0; // Account balance for payments
+    private long fineLimit = Money.ofRupees(1000); // Default fine limit
     
-    public User(String email, String name, String password, UserRole role, double securityDeposit) {
+    public User(String email, String name, String password, UserRole role, long securityDeposit) {
         this.email = email;
         this.name = name;
         this.password = password;
         this.role = role;
         this.securityDeposit = securityDeposit;
-        this.accountBalance = 0.0;
+        this.accountBalance = 0;
     }
     
     // Getters and Setters
@@ -25,24 +26,25 @@ public class User {
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
     public UserRole getRole() { return role; }
-    public double getSecurityDeposit() { return securityDeposit; }
-    public void setSecurityDeposit(double securityDeposit) { this.securityDeposit = securityDeposit; }
-    public double getAccountBalance() { return accountBalance; }
-    public void setAccountBalance(double accountBalance) { this.accountBalance = accountBalance; }
-    public void addToAccountBalance(double amount) { this.accountBalance += amount; }
-    public boolean deductFromAccountBalance(double amount) { 
+    public long getSecurityDeposit() { return securityDeposit; }
+    public void setSecurityDeposit(long securityDeposit) { this.securityDeposit = securityDeposit; }
+    // Balance changes are synchronized; several desks may act for the same account
+    public synchronized long getAccountBalance() { return accountBalance; }
+    public synchronized void setAccountBalance(long accountBalance) { this.accountBalance = accountBalance; }
+    public synchronized void addToAccountBalance(long amount) { this.accountBalance += amount; }
+    public synchronized boolean deductFromAccountBalance(long amount) { 
         if (accountBalance >= amount) {
             accountBalance -= amount;
             return true;
         }
         return false;
     }
-    public double getFineLimit() { return fineLimit; }
-    public void setFineLimit(double fineLimit) { this.fineLimit = fineLimit; }
+    public long getFineLimit() { return fineLimit; }
+    public void setFineLimit(long fineLimit) { this.fineLimit = fineLimit; }
     
     @Override
     public String toString() {
         return "User{email='" + email + "', name='" + name + "', role=" + role + 
-               ", securityDeposit=" + securityDeposit + ", accountBalance=" + accountBalance + "}";
+               ", securityDeposit=" + Money.format(securityDeposit) + ", accountBalance=" + Money.format(getAccountBalance()) + "}";
     }
 }
@@ -0,0 +1,257 @@
+package LibrarySystem.persistence;
+
+import LibrarySystem.models.Money;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Reads pipe-delimited data files in line-aligned chunks, parsed in
+// parallel. Rows come back in file order. Chunks are read into heap buffers
+// rather than memory-mapped: a mapping stays open until garbage collected,
+// and on Windows that blocks SnapshotFiles from replacing the file.
+public final class DelimitedFileReader {
+    private static final byte DELIMITER = '|';
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_FIELDS = 16;
+
+    public interface RowParser<T> {
+        // Returns null to skip the row
+        T parse(Row row);
+    }
+
+    private DelimitedFileReader() {}
+
+    // Missing files read as empty, which is fine for first run
+    public static <T> List<T> read(String file, RowParser<T> parser) throws IOException {
+        Path path = Paths.get(file);
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> chunks = splitIntoChunks(channel, size);
+            if (chunks.size() == 1) {
+                return parseChunk(channel, chunks.get(0)[0], chunks.get(0)[1], parser);
+            }
+
+            List<ForkJoinTask<List<T>>> tasks = new ArrayList<>();
+            for (long[] chunk : chunks) {
+                tasks.add(ForkJoinPool.commonPool().submit(() -> parseChunk(channel, chunk[0], chunk[1], parser)));
+            }
+            List<T> rows = new ArrayList<>();
+            for (ForkJoinTask<List<T>> task : tasks) {
+                rows.addAll(task.join());
+            }
+            return rows;
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    // Chunk boundaries are moved forward to the next newline so no line is split
+    private static List<long[]> splitIntoChunks(FileChannel channel, long size) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES, (size + parallelism - 1) / parallelism);
+        chunkBytes = Math.min(chunkBytes, Integer.MAX_VALUE - 4096);
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            if (end < size) {
+                end = nextLineStart(channel, end, size);
+            }
+            chunks.add(new long[] {start, end});
+            start = end;
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(new long[] {0, 0});
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static <T> List<T> parseChunk(FileChannel channel, long start, long end, RowParser<T> parser) {
+        List<T> rows = new ArrayList<>();
+        if (end <= start) {
+            return rows;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+
+        Row row = new Row(buffer);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i == limit || buffer.get(i) == '\n') {
+                int lineEnd = i;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart && row.scan(lineStart, lineEnd)) {
+                    T parsed = parser.parse(row);
+                    if (parsed != null) {
+                        rows.add(parsed);
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        return rows;
+    }
+
+    // One line of a chunk, split into fields without regex or per-line String allocation
+    public static final class Row {
+        private final ByteBuffer buffer;
+        private final int[] starts = new int[MAX_FIELDS];
+        private final int[] ends = new int[MAX_FIELDS];
+        private byte[] scratch = new byte[256];
+        private int fieldCount;
+
+        private Row(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private boolean scan(int lineStart, int lineEnd) {
+            fieldCount = 0;
+            int fieldStart = lineStart;
+            for (int i = lineStart; i <= lineEnd; i++) {
+                if (i == lineEnd || buffer.get(i) == DELIMITER) {
+                    if (fieldCount == MAX_FIELDS) {
+                        return false;
+                    }
+                    starts[fieldCount] = fieldStart;
+                    ends[fieldCount] = i;
+                    fieldCount++;
+                    fieldStart = i + 1;
+                }
+            }
+            return true;
+        }
+
+        public int fieldCount() {
+            return fieldCount;
+        }
+
+        public String text(int field) {
+            int length = ends[field] - starts[field];
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = buffer.get(starts[field] + i);
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        public String[] fields() {
+            String[] fields = new String[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                fields[i] = text(i);
+            }
+            return fields;
+        }
+
+        public boolean isNull(int field) {
+            return ends[field] - starts[field] == 4 && buffer.get(starts[field]) == 'n'
+                && buffer.get(starts[field] + 1) == 'u' && buffer.get(starts[field] + 2) == 'l'
+                && buffer.get(starts[field] + 3) == 'l';
+        }
+
+        public int intValue(int field) {
+            int position = starts[field];
+            int end = ends[field];
+            boolean negative = position < end && buffer.get(position) == '-';
+            if (negative) {
+                position++;
+            }
+            if (position == end) {
+                throw new NumberFormatException("empty number in field " + field);
+            }
+            int value = 0;
+            for (; position < end; position++) {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("For input string: \"" + text(field) + "\"");
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        // Rupees as decimal text, returned in paise
+        public long moneyValue(int field) {
+            return Money.parse(text(field));
+        }
+
+        public boolean booleanValue(int field) {
+            return ends[field] - starts[field] == 4 && (buffer.get(starts[field]) | 0x20) == 't';
+        }
+
+        // ISO yyyy-MM-dd, as written by LocalDate.toString for four-digit years
+        public LocalDate date(int field) {
+            int start = starts[field];
+            if (ends[field] - start != 10 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+                return LocalDate.parse(text(field));
+            }
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            if (year < 0 || month < 0 || day < 0) {
+                return LocalDate.parse(text(field)); // Reports the malformed value
+            }
+            return LocalDate.of(year, month, day);
+        }
+
+        // Returns -1 if any character is not a digit
+        private int digits(int position, int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                int digit = buffer.get(position + i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+    }
+}
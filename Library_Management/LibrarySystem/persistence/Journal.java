@@ -0,0 +1,296 @@
+package LibrarySystem.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.CRC32;
+
+// Append-only binary journal of domain events.
+//
+// Record layout: [int payloadLength][int crc32][payload], where the payload is
+// [long sequence][byte eventType][short fieldCount][UTF field]*. Appends reach
+// the OS on every call; fsync is batched (every SYNC_BATCH events or
+// SYNC_INTERVAL_MS, whichever comes first). A checkpoint file records the
+// last sequence covered by the text snapshots, so replay skips older events
+// and a torn record at the tail simply ends the replay.
+//
+// The data files are swapped in together: a snapshot stages all of them,
+// then the checkpoint names them along with its sequence, and only then are
+// they renamed into place. A crash part way through the renames is finished
+// when the journal is next opened, before the data files are read, so they
+// always match the checkpoint and no event is replayed onto files that
+// already include it.
+//
+// Services hold changeLock() (a shared read lock) around each change and its
+// append; snapshot() takes the exclusive side, so a snapshot never sees a
+// change whose event lands after the checkpoint.
+public class Journal implements Closeable {
+    private static final int SYNC_BATCH = 64;
+    private static final long SYNC_INTERVAL_MS = 100;
+    private static final int DEFAULT_SNAPSHOT_EVERY = 10000;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path journalPath;
+    private final Path checkpointPath;
+    private FileChannel channel;
+    private ScheduledExecutorService syncer;
+
+    private long lastSequence;
+    private long checkpointSequence;
+    private int unsyncedEvents = 0;
+    private int eventsSinceSnapshot = 0;
+
+    private final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private Runnable snapshotTask;
+    private int snapshotEvery = DEFAULT_SNAPSHOT_EVERY;
+    private boolean snapshotPending = false;
+
+    public Journal(String journalFile) {
+        this.journalPath = Paths.get(journalFile);
+        this.checkpointPath = Paths.get(journalFile + ".checkpoint");
+        this.checkpointSequence = readCheckpoint();
+        this.lastSequence = checkpointSequence;
+    }
+
+    // Replays events newer than the last checkpoint, then opens the journal for appending.
+    // Services must not have the journal attached while replaying.
+    public synchronized int replay(JournalReplayHandler handler) {
+        int replayed = 0;
+        long validLength = 0;
+        if (Files.exists(journalPath)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break; // Corrupt length prefix
+                    }
+                    int crc = in.readInt();
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (crc != checksum(payload)) {
+                        break; // Torn or corrupt tail
+                    }
+                    validLength += 8 + length;
+
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                    long sequence = record.readLong();
+                    JournalEventType type = JournalEventType.values()[record.readByte()];
+                    String[] fields = new String[record.readShort()];
+                    for (int i = 0; i < fields.length; i++) {
+                        fields[i] = record.readUTF();
+                    }
+
+                    lastSequence = Math.max(lastSequence, sequence);
+                    if (sequence > checkpointSequence) {
+                        handler.apply(type, fields);
+                        replayed++;
+                        eventsSinceSnapshot++;
+                    }
+                }
+            } catch (EOFException e) {
+                // Partially written record at the tail; it is dropped below
+            } catch (IOException e) {
+                System.err.println("Error replaying journal: " + e.getMessage());
+            }
+        }
+        open(validLength);
+        return replayed;
+    }
+
+    public synchronized void append(JournalEventType type, String... fields) {
+        if (channel == null) {
+            open(-1);
+            if (channel == null) {
+                return;
+            }
+        }
+        try {
+            channel.write(ByteBuffer.wrap(encode(++lastSequence, type, fields)));
+        } catch (IOException e) {
+            System.err.println("Error writing journal: " + e.getMessage());
+            return;
+        }
+
+        if (++unsyncedEvents >= SYNC_BATCH) {
+            sync();
+        }
+        // The caller holds changeLock, so the snapshot has to run on another thread
+        if (++eventsSinceSnapshot >= snapshotEvery && snapshotTask != null && !snapshotPending && syncer != null) {
+            snapshotPending = true;
+            syncer.execute(this::snapshot);
+        }
+    }
+
+    public Lock changeLock() {
+        return changeLock.readLock();
+    }
+
+    // Waits for in-flight changes to finish, then runs the snapshot task with changes held off.
+    // Must not be called while holding changeLock().
+    public void snapshot() {
+        Runnable task;
+        synchronized (this) {
+            task = snapshotTask;
+        }
+        changeLock.writeLock().lock();
+        try {
+            if (task != null) {
+                task.run();
+            }
+        } finally {
+            synchronized (this) {
+                snapshotPending = false;
+            }
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    // Called once stagedFiles (see SnapshotFiles.stage) include every event appended so far.
+    // Writing the checkpoint commits them; the journal is cut only after all are installed.
+    public synchronized void checkpoint(String... stagedFiles) {
+        sync();
+        try {
+            writeCheckpoint(lastSequence, stagedFiles);
+            checkpointSequence = lastSequence;
+            SnapshotFiles.install(stagedFiles);
+            writeCheckpoint(lastSequence);
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+            eventsSinceSnapshot = 0;
+        } catch (IOException e) {
+            // The checkpoint may still name the staged files, and the next snapshot would
+            // overwrite them before committing; leave the rest to the next startup
+            System.err.println("Error writing journal checkpoint, snapshots stopped: " + e.getMessage());
+            snapshotTask = null;
+        }
+    }
+
+    public synchronized void setSnapshotTask(Runnable snapshotTask, int snapshotEvery) {
+        this.snapshotTask = snapshotTask;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    public synchronized void sync() {
+        if (channel == null || unsyncedEvents == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedEvents = 0;
+        } catch (IOException e) {
+            System.err.println("Error syncing journal: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+        if (channel != null) {
+            sync();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    // Opens for appending, cutting off anything past validLength (or keeping the whole file if negative)
+    private void open(long validLength) {
+        try {
+            boolean created = !Files.exists(journalPath);
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (created) {
+                SnapshotFiles.syncDirectory(journalPath);
+            }
+            if (validLength >= 0) {
+                channel.truncate(validLength);
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            System.err.println("Error opening journal: " + e.getMessage());
+            return;
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Reads the checkpointed sequence, first installing any files it names that are still staged
+    private long readCheckpoint() {
+        List<String> lines = new ArrayList<>();
+        long sequence;
+        try {
+            for (String line : Files.readAllLines(checkpointPath)) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line.trim());
+                }
+            }
+            sequence = Long.parseLong(lines.get(0));
+        } catch (IOException | IndexOutOfBoundsException | NumberFormatException e) {
+            return 0; // No checkpoint yet
+        }
+        if (lines.size() > 1) {
+            try {
+                SnapshotFiles.install(lines.subList(1, lines.size()).toArray(new String[0]));
+                writeCheckpoint(sequence);
+            } catch (IOException e) {
+                // Reading a mix of old and new data files would replay events twice
+                throw new UncheckedIOException("Could not finish installing the last snapshot", e);
+            }
+        }
+        return sequence;
+    }
+
+    private void writeCheckpoint(long sequence, String... stagedFiles) throws IOException {
+        SnapshotFiles.write(checkpointPath.toString(), writer -> {
+            writer.println(sequence);
+            for (String file : stagedFiles) {
+                writer.println(file);
+            }
+        });
+    }
+
+    private static byte[] encode(long sequence, JournalEventType type, String[] fields) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeLong(sequence);
+        payload.writeByte(type.ordinal());
+        payload.writeShort(fields.length);
+        for (String field : fields) {
+            payload.writeUTF(field);
+        }
+        byte[] body = payloadBytes.toByteArray();
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(body.length + 8);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(body.length);
+        record.writeInt(checksum(body));
+        record.write(body);
+        return recordBytes.toByteArray();
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
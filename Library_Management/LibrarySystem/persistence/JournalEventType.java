@@ -0,0 +1,10 @@
+package LibrarySystem.persistence;
+
+public enum JournalEventType {
+    BORROW, RETURN, EXTEND, LOST_BOOK,
+    FINE, FINE_PAID, ALL_FINES_PAID,
+    USER_PUT, USER_DELETE,
+    BOOK_PUT, BOOK_DELETE,
+    BORROW_BATCH,
+    BOOK_STOCK
+}
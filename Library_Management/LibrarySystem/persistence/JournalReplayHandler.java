@@ -0,0 +1,5 @@
+package LibrarySystem.persistence;
+
+public interface JournalReplayHandler {
+    void apply(JournalEventType type, String[] fields);
+}
@@ -0,0 +1,62 @@
+package LibrarySystem.persistence;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Writes a snapshot to a temporary file and swaps it in with an atomic rename,
+// so a crash mid-save never leaves a half-written data file behind. The
+// temporary file is forced to disk before the rename and the directory after
+// it, so the swap itself survives a power cut.
+//
+// stage() and install() split the two steps for callers that have to switch
+// several files together (see Journal.checkpoint).
+public final class SnapshotFiles {
+    private SnapshotFiles() {}
+
+    public static void write(String file, Consumer<PrintWriter> body) throws IOException {
+        stage(file, body);
+        install(file);
+    }
+
+    // Writes file.tmp and forces it to disk, leaving file itself untouched
+    public static void stage(String file, Consumer<PrintWriter> body) throws IOException {
+        Path temp = Paths.get(file + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out)))) {
+            body.accept(writer);
+            if (writer.checkError()) {
+                throw new IOException("write failed for " + temp);
+            }
+            out.getChannel().force(true);
+        }
+    }
+
+    // Renames each staged file over its target, skipping any already moved, then syncs their directories
+    public static void install(String... files) throws IOException {
+        for (String file : files) {
+            Path temp = Paths.get(file + ".tmp");
+            if (Files.exists(temp)) {
+                Files.move(temp, Paths.get(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Set<Path> directories = new HashSet<>();
+        for (String file : files) {
+            if (directories.add(Paths.get(file).toAbsolutePath().getParent())) {
+                syncDirectory(Paths.get(file));
+            }
+        }
+    }
+
+    // Makes renames and new entries in file's directory durable
+    public static void syncDirectory(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows can't open a directory this way; NTFS journals the rename itself
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package LibrarySystem.persistence;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Loads several data files concurrently, one thread per file, and keeps
+// per-file timings for the startup report.
+public class StartupLoader {
+    public interface FileLoad<T> {
+        List<T> load() throws Exception;
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final ExecutorService executor;
+    private final Map<String, Future<?>> loads = new LinkedHashMap<>();
+    private final Map<String, String> timings = new ConcurrentHashMap<>();
+
+    public StartupLoader() {
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "startup-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> Future<List<T>> submit(String name, FileLoad<T> load) {
+        Future<List<T>> future = executor.submit(() -> {
+            long start = System.nanoTime();
+            List<T> rows = load.load();
+            timings.put(name, rows.size() + " rows in " + millisSince(start) + " ms");
+            return rows;
+        });
+        loads.put(name, future);
+        return future;
+    }
+
+    public <T> List<T> get(Future<List<T>> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error loading data: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public String report() {
+        executor.shutdown();
+        StringBuilder report = new StringBuilder("Data loaded in " + millisSince(startNanos) + " ms");
+        String separator = " (";
+        for (String name : loads.keySet()) {
+            String timing = timings.get(name);
+            report.append(separator).append(name).append(": ").append(timing == null ? "failed" : timing);
+            separator = ", ";
+        }
+        return loads.isEmpty() ? report.toString() : report.append(")").toString();
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
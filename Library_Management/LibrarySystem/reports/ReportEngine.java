@@ -0,0 +1,196 @@
+package LibrarySystem.reports;
+
+import LibrarySystem.models.*;
+import LibrarySystem.books.BookService;
+import LibrarySystem.transactions.TransactionService;
+import LibrarySystem.auth.AuthService;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+// Produces any set of admin reports with at most one pass over the catalog
+// and one over the fines, however many reports are asked for. Low stock is
+// read from the stock index, the most borrowed books off the live
+// leaderboard, and overdue loans are a range read of the due-date index.
+// Fines are bucketed by day instead of sorting a copy of the whole list, and
+// all text goes through one buffered UTF-8 writer.
+public class ReportEngine {
+    public enum Report {
+        LOW_QUANTITY, NEVER_BORROWED, MOST_BORROWED, OUTSTANDING, ALL_FINES, UNPAID_FINES
+    }
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int TOP_BORROWED = 10;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BookService bookService;
+    private TransactionService transactionService;
+    private AuthService authService;
+
+    public ReportEngine(BookService bookService, TransactionService transactionService, AuthService authService) {
+        this.bookService = bookService;
+        this.transactionService = transactionService;
+        this.authService = authService;
+    }
+
+    public void run(Set<Report> reports, int lowQuantityThreshold, LocalDate checkDate, OutputStream out) {
+        run(reports, lowQuantityThreshold, checkDate, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    public void run(Set<Report> reports, int lowQuantityThreshold, LocalDate checkDate, Writer out) {
+        PrintWriter writer = new PrintWriter(new BufferedWriter(out, BUFFER_SIZE));
+
+        // Catalog pass, only needed for books never borrowed
+        List<Book> neverBorrowedBooks = new ArrayList<>();
+        if (reports.contains(Report.NEVER_BORROWED)) {
+            for (Book book : bookService.getAllBooks()) {
+                if (transactionService.getBorrowCount(book.getIsbn()) == 0) {
+                    neverBorrowedBooks.add(book);
+                }
+            }
+        }
+
+        // Fine pass, bucketed newest day first
+        TreeMap<LocalDate, List<FineRecord>> finesByDay = new TreeMap<>(Comparator.reverseOrder());
+        boolean[] anyUnpaid = new boolean[1];
+        if (reports.contains(Report.ALL_FINES) || reports.contains(Report.UNPAID_FINES)) {
+            transactionService.forEachFine(fine -> {
+                finesByDay.computeIfAbsent(fine.getFineDate(), day -> new ArrayList<>()).add(fine);
+                anyUnpaid[0] |= !fine.isPaid();
+            });
+        }
+
+        for (Report report : Report.values()) {
+            if (!reports.contains(report)) {
+                continue;
+            }
+            switch (report) {
+                case LOW_QUANTITY:
+                    writeLowQuantity(writer, bookService.getBooksWithLowQuantity(lowQuantityThreshold), lowQuantityThreshold);
+                    break;
+                case NEVER_BORROWED:
+                    writeNeverBorrowed(writer, neverBorrowedBooks);
+                    break;
+                case MOST_BORROWED:
+                    writeMostBorrowed(writer, transactionService.getMostBorrowedBooks(TOP_BORROWED));
+                    break;
+                case OUTSTANDING:
+                    writeOutstanding(writer, transactionService.getOutstandingBooks(checkDate), checkDate);
+                    break;
+                case ALL_FINES:
+                    writeAllFines(writer, finesByDay);
+                    break;
+                case UNPAID_FINES:
+                    writeUnpaidFines(writer, finesByDay, anyUnpaid[0]);
+                    break;
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeLowQuantity(PrintWriter writer, List<Book> books, int threshold) {
+        writer.println("\n--- Books with Low Quantity (≤ " + threshold + ") ---");
+        if (books.isEmpty()) {
+            writer.println("No books found with quantity ≤ " + threshold);
+            return;
+        }
+        for (Book book : books) { // Already fewest copies first
+            writer.println(book);
+        }
+    }
+
+    private void writeNeverBorrowed(PrintWriter writer, List<Book> books) {
+        writer.println("\n--- Books Never Borrowed ---");
+        if (books.isEmpty()) {
+            writer.println("All books have been borrowed at least once.");
+            return;
+        }
+        books.sort((b1, b2) -> b1.getTitle().compareToIgnoreCase(b2.getTitle()));
+        for (Book book : books) {
+            writer.println(book);
+        }
+    }
+
+    private void writeMostBorrowed(PrintWriter writer, Map<String, Long> top) {
+        writer.println("\n--- Most Borrowed Books ---");
+        if (top.isEmpty()) {
+            writer.println("No books have been borrowed yet.");
+            return;
+        }
+        for (Map.Entry<String, Long> entry : top.entrySet()) {
+            Book book = bookService.getBookByIsbn(entry.getKey());
+            if (book != null) {
+                writer.println(book.getTitle() + " - Borrowed " + entry.getValue() + " times");
+            }
+        }
+    }
+
+    private void writeOutstanding(PrintWriter writer, List<BorrowingRecord> records, LocalDate checkDate) {
+        writer.println("\n--- Outstanding Books as of " + checkDate.format(DATE_FORMAT) + " ---");
+        if (records.isEmpty()) {
+            writer.println("No outstanding books found.");
+            return;
+        }
+        for (BorrowingRecord record : records) {
+            Book book = bookService.getBookByIsbn(record.getIsbn());
+            User borrower = authService.getUserByEmail(record.getBorrowerEmail());
+            if (book != null && borrower != null) {
+                long daysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), checkDate);
+                writer.println(borrower.getName() + " (" + borrower.getEmail() + ") - " +
+                    book.getTitle() + " - Overdue by " + daysOverdue + " days");
+            }
+        }
+    }
+
+    private void writeAllFines(PrintWriter writer, TreeMap<LocalDate, List<FineRecord>> finesByDay) {
+        writer.println("\n--- All Fines Report ---");
+        if (finesByDay.isEmpty()) {
+            writer.println("No fines recorded.");
+            return;
+        }
+        for (List<FineRecord> fines : finesByDay.values()) {
+            for (FineRecord fine : fines) {
+                User borrower = authService.getUserByEmail(fine.getBorrowerEmail());
+                if (borrower != null) {
+                    writer.println(borrower.getName() + " - " + titleOf(fine) + " - Rs. " +
+                        Money.format(fine.getAmount()) + " (" + fine.getReason() + ") - " +
+                        (fine.isPaid() ? "PAID" : "UNPAID"));
+                }
+            }
+        }
+    }
+
+    private void writeUnpaidFines(PrintWriter writer, TreeMap<LocalDate, List<FineRecord>> finesByDay, boolean anyUnpaid) {
+        writer.println("\n--- All Unpaid Fines ---");
+        if (!anyUnpaid) {
+            writer.println("No unpaid fines.");
+            return;
+        }
+        long totalUnpaid = 0;
+        for (List<FineRecord> fines : finesByDay.values()) {
+            for (FineRecord fine : fines) {
+                if (fine.isPaid()) {
+                    continue;
+                }
+                User borrower = authService.getUserByEmail(fine.getBorrowerEmail());
+                if (borrower != null) {
+                    writer.println(borrower.getName() + " (" + borrower.getEmail() + ") - " +
+                        titleOf(fine) + " - Rs. " + Money.format(fine.getAmount()) + " (" + fine.getReason() + ")");
+                    totalUnpaid += fine.getAmount();
+                }
+            }
+        }
+        writer.println("\nTotal unpaid amount: Rs. " + Money.format(totalUnpaid));
+    }
+
+    private String titleOf(FineRecord fine) {
+        if (fine.getIsbn().equals("CARD")) {
+            return "Membership Card";
+        }
+        Book book = bookService.getBookByIsbn(fine.getIsbn());
+        return book != null ? book.getTitle() : fine.getIsbn(); // Book since deleted
+    }
+}
@@ -4,196 +4,150 @@ import LibrarySystem.models.*;
 import LibrarySystem.books.BookService;
 import LibrarySystem.transactions.TransactionService;
 import LibrarySystem.auth.AuthService;
+import LibrarySystem.metrics.*;
+import java.io.PrintStream;
 import java.util.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 public class ReportService {
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final OperationMetrics LOW_QUANTITY_BOOKS_REPORT_METRICS = Metrics.operation("reports.generateLowQuantityBooksReport");
+    private static final OperationMetrics NEVER_BORROWED_BOOKS_REPORT_METRICS = Metrics.operation("reports.generateNeverBorrowedBooksReport");
+    private static final OperationMetrics MOST_BORROWED_BOOKS_REPORT_METRICS = Metrics.operation("reports.generateMostBorrowedBooksReport");
+    private static final OperationMetrics TRENDING_BOOKS_REPORT_METRICS = Metrics.operation("reports.generateTrendingBooksReport");
+    private static final OperationMetrics OUTSTANDING_BOOKS_REPORT_METRICS = Metrics.operation("reports.generateOutstandingBooksReport");
+    private static final OperationMetrics BOOK_STATUS_REPORT_METRICS = Metrics.operation("reports.generateBookStatusReport");
+    private static final OperationMetrics ALL_FINES_REPORT_METRICS = Metrics.operation("reports.generateAllFinesReport");
+    private static final OperationMetrics UNPAID_FINES_REPORT_METRICS = Metrics.operation("reports.generateUnpaidFinesReport");
+    private static final OperationMetrics NIGHTLY_REPORTS_METRICS = Metrics.operation("reports.generateNightlyReports");
+    private static final OperationMetrics BORROWER_FINE_HISTORY_METRICS = Metrics.operation("reports.generateBorrowerFineHistory");
+    private static final OperationMetrics BORROWER_BORROWING_HISTORY_METRICS = Metrics.operation("reports.generateBorrowerBorrowingHistory");
     
     private BookService bookService;
     private TransactionService transactionService;
     private AuthService authService;
+    private ReportEngine reportEngine;
+    private PrintStream out;
     
     public ReportService(BookService bookService, TransactionService transactionService, AuthService authService) {
+        this(bookService, transactionService, authService, System.out);
+    }
+    
+    // Reports are printed to out, e.g. the terminal of the session that asked
+    public ReportService(BookService bookService, TransactionService transactionService, AuthService authService, PrintStream out) {
         this.bookService = bookService;
         this.transactionService = transactionService;
         this.authService = authService;
+        this.reportEngine = new ReportEngine(bookService, transactionService, authService);
+        this.out = out;
     }
     
     // Admin Reports
     public void generateLowQuantityBooksReport(int threshold) {
-        System.out.println("\n--- Books with Low Quantity (≤ " + threshold + ") ---");
-        List<Book> lowQuantityBooks = bookService.getBooksWithLowQuantity(threshold);
-        
-        if (lowQuantityBooks.isEmpty()) {
-            System.out.println("No books found with quantity ≤ " + threshold);
-        } else {
-            for (Book book : lowQuantityBooks) {
-                System.out.println(book);
-            }
-        }
+        timed(LOW_QUANTITY_BOOKS_REPORT_METRICS, () -> reportEngine.run(EnumSet.of(ReportEngine.Report.LOW_QUANTITY), threshold, LocalDate.now(), out));
     }
     
     public void generateNeverBorrowedBooksReport() {
-        System.out.println("\n--- Books Never Borrowed ---");
-        Set<String> neverBorrowedIsbns = transactionService.getNeverBorrowedBooks();
-        
-        if (neverBorrowedIsbns.isEmpty()) {
-            System.out.println("All books have been borrowed at least once.");
-        } else {
-            List<Book> neverBorrowedBooks = new ArrayList<>();
-            for (String isbn : neverBorrowedIsbns) {
-                Book book = bookService.getBookByIsbn(isbn);
-                if (book != null) {
-                    neverBorrowedBooks.add(book);
-                }
-            }
-            
-            neverBorrowedBooks.sort((b1, b2) -> b1.getTitle().compareToIgnoreCase(b2.getTitle()));
-            for (Book book : neverBorrowedBooks) {
-                System.out.println(book);
-            }
-        }
+        timed(NEVER_BORROWED_BOOKS_REPORT_METRICS, () -> reportEngine.run(EnumSet.of(ReportEngine.Report.NEVER_BORROWED), 0, LocalDate.now(), out));
     }
     
     public void generateMostBorrowedBooksReport() {
-        System.out.println("\n--- Most Borrowed Books ---");
-        Map<String, Long> borrowCounts = transactionService.getMostBorrowedBooks();
+        timed(MOST_BORROWED_BOOKS_REPORT_METRICS, () -> reportEngine.run(EnumSet.of(ReportEngine.Report.MOST_BORROWED), 0, LocalDate.now(), out));
+    }
+    
+    public void generateTrendingBooksReport(int windowDays) {
+        timed(TRENDING_BOOKS_REPORT_METRICS, () -> printTrendingBooks(windowDays));
+    }
+    
+    private void printTrendingBooks(int windowDays) {
+        out.println("\n--- Trending Books (last " + windowDays + " days) ---");
+        Map<String, Long> trending = transactionService.getTrendingBooks(windowDays, LocalDate.now(), 10);
         
-        if (borrowCounts.isEmpty()) {
-            System.out.println("No books have been borrowed yet.");
+        if (trending.isEmpty()) {
+            out.println("No books borrowed in this period.");
             return;
         }
         
-        List<Map.Entry<String, Long>> sortedEntries = new ArrayList<>(borrowCounts.entrySet());
-        sortedEntries.sort((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
-        
-        int count = 0;
-        for (Map.Entry<String, Long> entry : sortedEntries) {
-            if (count >= 10) break; // Show top 10
-            
+        for (Map.Entry<String, Long> entry : trending.entrySet()) {
             Book book = bookService.getBookByIsbn(entry.getKey());
             if (book != null) {
-                System.out.println(book.getTitle() + " - Borrowed " + entry.getValue() + " times");
+                out.println(book.getTitle() + " - Borrowed " + entry.getValue() + " times");
             }
-            count++;
         }
     }
     
     public void generateOutstandingBooksReport(LocalDate checkDate) {
-        System.out.println("\n--- Outstanding Books as of " + checkDate.format(DATE_FORMAT) + " ---");
-        List<BorrowingRecord> outstandingBooks = transactionService.getOutstandingBooks(checkDate);
-        
-        if (outstandingBooks.isEmpty()) {
-            System.out.println("No outstanding books found.");
-        } else {
-            for (BorrowingRecord record : outstandingBooks) {
-                Book book = bookService.getBookByIsbn(record.getIsbn());
-                User borrower = authService.getUserByEmail(record.getBorrowerEmail());
-                
-                if (book != null && borrower != null) {
-                    long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(record.getDueDate(), checkDate);
-                    System.out.println(borrower.getName() + " (" + borrower.getEmail() + ") - " +
-                        book.getTitle() + " - Overdue by " + daysOverdue + " days");
-                }
-            }
-        }
+        timed(OUTSTANDING_BOOKS_REPORT_METRICS, () -> reportEngine.run(EnumSet.of(ReportEngine.Report.OUTSTANDING), 0, checkDate, out));
     }
     
     public void generateBookStatusReport(String isbn) {
-        System.out.println("\n--- Book Status Report ---");
+        timed(BOOK_STATUS_REPORT_METRICS, () -> printBookStatus(isbn));
+    }
+    
+    private void printBookStatus(String isbn) {
+        out.println("\n--- Book Status Report ---");
         Book book = bookService.getBookByIsbn(isbn.toUpperCase());
         
         if (book == null) {
-            System.out.println("Book not found!");
+            out.println("Book not found!");
             return;
         }
         
-        System.out.println("Book: " + book);
+        out.println("Book: " + book);
         
-        BorrowingRecord currentRecord = transactionService.getCurrentBorrowingRecord(isbn);
+        List<BorrowingRecord> currentRecords = transactionService.getCurrentBorrowingRecords(book.getIsbn());
         
-        if (currentRecord == null) {
-            System.out.println("Status: Available in library");
+        if (currentRecords.isEmpty()) {
+            out.println("Status: Available in library");
         } else {
-            User borrower = authService.getUserByEmail(currentRecord.getBorrowerEmail());
-            if (borrower != null) {
-                System.out.println("Status: Currently borrowed");
-                System.out.println("Borrowed by: " + borrower.getName() + " (" + borrower.getEmail() + ")");
-                System.out.println("Borrowed date: " + currentRecord.getBorrowDate().format(DATE_FORMAT));
-                System.out.println("Due date: " + currentRecord.getDueDate().format(DATE_FORMAT));
-                System.out.println("Expected return: " + currentRecord.getDueDate().format(DATE_FORMAT));
+            out.println("Status: Currently borrowed (" + currentRecords.size() + " copies out)");
+            for (BorrowingRecord currentRecord : currentRecords) {
+                User borrower = authService.getUserByEmail(currentRecord.getBorrowerEmail());
+                if (borrower != null) {
+                    out.println("Borrowed by: " + borrower.getName() + " (" + borrower.getEmail() + ")");
+                    out.println("Borrowed date: " + currentRecord.getBorrowDate().format(DATE_FORMAT));
+                    out.println("Due date: " + currentRecord.getDueDate().format(DATE_FORMAT));
+                    out.println("Expected return: " + currentRecord.getDueDate().format(DATE_FORMAT));
+                }
             }
         }
     }
     
     public void generateAllFinesReport() {
-        System.out.println("\n--- All Fines Report ---");
-        List<FineRecord> allFines = transactionService.getAllFineRecords();
-        
-        if (allFines.isEmpty()) {
-            System.out.println("No fines recorded.");
-            return;
-        }
-        
-        List<FineRecord> sortedFines = new ArrayList<>(allFines);
-        sortedFines.sort((f1, f2) -> f2.getFineDate().compareTo(f1.getFineDate()));
-        
-        for (FineRecord fine : sortedFines) {
-            User borrower = authService.getUserByEmail(fine.getBorrowerEmail());
-            String bookTitle = fine.getIsbn().equals("CARD") ? "Membership Card" : 
-                bookService.getBookByIsbn(fine.getIsbn()).getTitle();
-            
-            if (borrower != null) {
-                System.out.println(borrower.getName() + " - " + bookTitle + " - Rs. " + 
-                    fine.getAmount() + " (" + fine.getReason() + ") - " + 
-                    (fine.isPaid() ? "PAID" : "UNPAID"));
-            }
-        }
+        timed(ALL_FINES_REPORT_METRICS, () -> reportEngine.run(EnumSet.of(ReportEngine.Report.ALL_FINES), 0, LocalDate.now(), out));
     }
     
     public void generateUnpaidFinesReport() {
-        System.out.println("\n--- All Unpaid Fines ---");
-        List<FineRecord> unpaidFines = transactionService.getAllUnpaidFines();
-        
-        if (unpaidFines.isEmpty()) {
-            System.out.println("No unpaid fines.");
-            return;
-        }
-        
-        double totalUnpaid = 0;
-        for (FineRecord fine : unpaidFines) {
-            User borrower = authService.getUserByEmail(fine.getBorrowerEmail());
-            String bookTitle = fine.getIsbn().equals("CARD") ? "Membership Card" : 
-                bookService.getBookByIsbn(fine.getIsbn()).getTitle();
-            
-            if (borrower != null) {
-                System.out.println(borrower.getName() + " (" + borrower.getEmail() + ") - " + 
-                    bookTitle + " - Rs. " + fine.getAmount() + " (" + fine.getReason() + ")");
-                totalUnpaid += fine.getAmount();
-            }
-        }
-        System.out.println("\nTotal unpaid amount: Rs. " + totalUnpaid);
+        timed(UNPAID_FINES_REPORT_METRICS, () -> reportEngine.run(EnumSet.of(ReportEngine.Report.UNPAID_FINES), 0, LocalDate.now(), out));
+    }
+    
+    // Every admin report in one run, outstanding books as of today
+    public void generateNightlyReports(int lowQuantityThreshold) {
+        timed(NIGHTLY_REPORTS_METRICS, () -> reportEngine.run(EnumSet.allOf(ReportEngine.Report.class), lowQuantityThreshold, LocalDate.now(), out));
     }
     
     // Borrower Reports
     public void generateBorrowerFineHistory(String borrowerEmail) {
-        System.out.println("\n--- My Fine History ---");
+        timed(BORROWER_FINE_HISTORY_METRICS, () -> printBorrowerFineHistory(borrowerEmail));
+    }
+    
+    private void printBorrowerFineHistory(String borrowerEmail) {
+        out.println("\n--- My Fine History ---");
         List<FineRecord> fineHistory = transactionService.getFineHistory(borrowerEmail);
         
         if (fineHistory.isEmpty()) {
-            System.out.println("No fines recorded.");
+            out.println("No fines recorded.");
             return;
         }
         
-        double totalUnpaid = 0;
+        long totalUnpaid = 0;
         for (FineRecord fine : fineHistory) {
             String bookTitle = fine.getIsbn().equals("CARD") ? "Membership Card" : 
                 bookService.getBookByIsbn(fine.getIsbn()).getTitle();
             
-            System.out.println(fine.getFineDate().format(DATE_FORMAT) + " - " + bookTitle + 
-                " - Rs. " + fine.getAmount() + " (" + fine.getReason() + ") - " + 
+            out.println(fine.getFineDate().format(DATE_FORMAT) + " - " + bookTitle + 
+                " - Rs. " + Money.format(fine.getAmount()) + " (" + fine.getReason() + ") - " + 
                 (fine.isPaid() ? "PAID" : "UNPAID"));
             
             if (!fine.isPaid()) {
@@ -201,21 +155,25 @@ public class ReportService {
             }
         }
         
-        System.out.println("\nTotal unpaid fines: Rs. " + totalUnpaid);
+        out.println("\nTotal unpaid fines: Rs. " + Money.format(totalUnpaid));
         
         // Show account balance
         User user = authService.getUserByEmail(borrowerEmail);
         if (user != null) {
-            System.out.println("Account balance: Rs. " + user.getAccountBalance());
+            out.println("Account balance: Rs. " + Money.format(user.getAccountBalance()));
         }
     }
     
     public void generateBorrowerBorrowingHistory(String borrowerEmail) {
-        System.out.println("\n--- My Borrowing History ---");
+        timed(BORROWER_BORROWING_HISTORY_METRICS, () -> printBorrowerBorrowingHistory(borrowerEmail));
+    }
+    
+    private void printBorrowerBorrowingHistory(String borrowerEmail) {
+        out.println("\n--- My Borrowing History ---");
         List<BorrowingRecord> borrowingHistory = transactionService.getBorrowingHistory(borrowerEmail);
         
         if (borrowingHistory.isEmpty()) {
-            System.out.println("No borrowing history.");
+            out.println("No borrowing history.");
             return;
         }
         
@@ -227,9 +185,21 @@ public class ReportService {
                     "Due: " + record.getDueDate().format(DATE_FORMAT) :
                     "Returned: " + record.getReturnDate().format(DATE_FORMAT);
                 
-                System.out.println(book.getTitle() + " - Borrowed: " + 
+                out.println(book.getTitle() + " - Borrowed: " + 
                     record.getBorrowDate().format(DATE_FORMAT) + " - " + returnInfo + " - " + status);
             }
         }
     }
+    
+    // Failed = threw before the report was finished
+    private static void timed(OperationMetrics metrics, Runnable report) {
+        long started = metrics.start();
+        boolean completed = false;
+        try {
+            report.run();
+            completed = true;
+        } finally {
+            metrics.finish(started, completed);
+        }
+    }
 }
@@ -0,0 +1,600 @@
+package LibrarySystem.server;
+
+import LibrarySystem.models.*;
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.books.*;
+import LibrarySystem.transactions.TransactionService;
+import LibrarySystem.reports.ReportService;
+import LibrarySystem.users.Borrower;
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// HTTP/JSON front end for kiosks and the web catalog, over the same services
+// as the console. Requests run one per virtual thread where the JDK has them
+// (21+) and on a bounded pool otherwise; the server's selector thread holds
+// idle keep-alive connections, so clients waiting between requests cost no
+// thread either way.
+//
+// Log in with POST /api/login and send the token back as
+// "Authorization: Bearer <token>". Catalog reads need no login. Admins may
+// act for a borrower by naming them ("email" in the body, or ?email=).
+//
+//   POST /api/login            {"email", "password"}
+//   POST /api/logout
+//   GET  /api/books            ?order=title|quantity&page=1&size=20
+//   GET  /api/books/search     ?q=...&limit=20
+//   GET  /api/books/<isbn>
+//   POST /api/borrow           {"isbns": [...]} or {"isbn"}, borrowed whole or not at all
+//   POST /api/return           {"isbn", "returnDate": "YYYY-MM-DD" (default today)}
+//   POST /api/extend           {"isbn"}
+//   POST /api/fines/pay        {"method": "account" | "cash" (admins only)}
+//   GET  /api/me, /api/me/loans, /api/me/history, /api/me/fines
+//   GET  /api/reports/<name>   admins; low-quantity (?threshold=), never-borrowed,
+//                              most-borrowed, outstanding (?date=), all-fines,
+//                              unpaid-fines or nightly; plain text
+public class ApiServer {
+    private static final String PREFIX = "/api";
+    private static final int BACKLOG = 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final long SESSION_IDLE_MS = 30 * 60 * 1000;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_LOW_QUANTITY = 2;
+
+    private final AuthService authService;
+    private final BookService bookService;
+    private final TransactionService transactionService;
+    private final SessionStore sessions = new SessionStore(SESSION_IDLE_MS);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public ApiServer(AuthService authService, BookService bookService, TransactionService transactionService) {
+        this.authService = authService;
+        this.bookService = bookService;
+        this.transactionService = transactionService;
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Already started");
+        }
+        executor = newRequestExecutor();
+        server = HttpServer.create(address, BACKLOG);
+        server.createContext(PREFIX + "/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // Waits up to delaySeconds for requests in flight to finish
+    public synchronized void stop(int delaySeconds) {
+        if (server == null) {
+            return;
+        }
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds + 1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    public synchronized String describeExecutor() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getMaximumPoolSize() + " pooled threads";
+        }
+        return executor == null ? "not started" : "a virtual thread per request";
+    }
+
+    // Found by reflection so the code still builds and runs on Java 8
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "api-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            try {
+                route(exchange);
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error handling " + exchange.getRequestURI() + ": " + e);
+                sendError(exchange, 500, "Internal error");
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to tell it
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        boolean get = method.equals("GET");
+        boolean post = method.equals("POST");
+
+        if (post && path.equals("/login")) {
+            login(exchange);
+        } else if (post && path.equals("/logout")) {
+            sessions.close(bearerToken(exchange));
+            sendJson(exchange, 200, new Json().beginObject().field("loggedOut", true).endObject());
+        } else if (get && path.equals("/books")) {
+            catalogPage(exchange);
+        } else if (get && path.equals("/books/search")) {
+            search(exchange);
+        } else if (get && path.startsWith("/books/")) {
+            book(exchange, path.substring("/books/".length()));
+        } else if (post && path.equals("/borrow")) {
+            borrow(exchange);
+        } else if (post && path.equals("/return")) {
+            returnBook(exchange);
+        } else if (post && path.equals("/extend")) {
+            extend(exchange);
+        } else if (post && path.equals("/fines/pay")) {
+            payFines(exchange);
+        } else if (get && path.startsWith("/me")) {
+            me(exchange, path);
+        } else if (get && path.startsWith("/reports/")) {
+            report(exchange, path.substring("/reports/".length()));
+        } else {
+            throw new ApiException(404, "No such endpoint: " + method + " " + PREFIX + path);
+        }
+    }
+
+    // Endpoints
+
+    private void login(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = readBody(exchange);
+        User user = authService.authenticate(requireString(body, "email"), requireString(body, "password"));
+        if (user == null) {
+            throw new ApiException(401, "Invalid credentials");
+        }
+        sendJson(exchange, 200, new Json().beginObject()
+            .field("token", sessions.open(user.getEmail()))
+            .field("name", user.getName())
+            .field("role", user.getRole().toString())
+            .endObject());
+    }
+
+    private void catalogPage(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        CatalogOrder order = "quantity".equalsIgnoreCase(query.get("order")) ? CatalogOrder.QUANTITY : CatalogOrder.TITLE;
+        int size = Math.min(MAX_PAGE_SIZE, intParameter(query, "size", DEFAULT_PAGE_SIZE));
+        CatalogPage page = bookService.getCatalogPage(order, intParameter(query, "page", 1), size);
+        Json json = new Json().beginObject()
+            .field("order", order.toString().toLowerCase())
+            .field("page", page.getPageNumber())
+            .field("pageCount", page.getPageCount())
+            .field("hasNext", page.hasNext())
+            .field("hasPrevious", page.hasPrevious())
+            .name("books");
+        writeBooks(json, page.getBooks());
+        sendJson(exchange, 200, json.endObject());
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        String q = query.get("q");
+        if (q == null || q.trim().isEmpty()) {
+            throw new ApiException(400, "Missing q");
+        }
+        List<Book> books = bookService.searchBooks(q);
+        int limit = Math.min(MAX_PAGE_SIZE, intParameter(query, "limit", DEFAULT_PAGE_SIZE));
+        Json json = new Json().beginObject().field("total", books.size()).name("books");
+        writeBooks(json, books.subList(0, Math.min(limit, books.size())));
+        sendJson(exchange, 200, json.endObject());
+    }
+
+    private void book(HttpExchange exchange, String isbn) throws IOException {
+        Book book = bookService.getBookByIsbn(isbn.toUpperCase());
+        if (book == null) {
+            throw new ApiException(404, "No book with ISBN " + isbn);
+        }
+        Json json = new Json();
+        writeBook(json, book);
+        sendJson(exchange, 200, json);
+    }
+
+    private void borrow(HttpExchange exchange) throws IOException {
+        User caller = requireUser(exchange);
+        Map<String, Object> body = readBody(exchange);
+        User borrower = borrowerFor(caller, optionalString(body, "email"));
+        if (!new Borrower(borrower).canBorrowBooks()) {
+            throw new ApiException(403, "Security deposit below Rs. 500");
+        }
+
+        List<String> isbns = new ArrayList<>();
+        Object list = body.get("isbns");
+        if (list instanceof List) {
+            for (Object isbn : (List<?>) list) {
+                if (!(isbn instanceof String)) {
+                    throw new ApiException(400, "isbns must be strings");
+                }
+                isbns.add(((String) isbn).toUpperCase());
+            }
+        } else {
+            isbns.add(requireString(body, "isbn").toUpperCase());
+        }
+        if (isbns.isEmpty()) {
+            throw new ApiException(400, "Nothing to borrow");
+        }
+
+        List<BorrowResult> results = transactionService.borrowBatch(borrower.getEmail(), isbns);
+        boolean borrowed = results.get(0) == BorrowResult.SUCCESS;
+        Json json = new Json().beginObject().field("borrowed", borrowed);
+        if (borrowed) {
+            json.field("dueDate", LocalDate.now().plusDays(15).toString());
+        }
+        json.name("results").beginArray();
+        for (int i = 0; i < isbns.size(); i++) {
+            json.beginObject().field("isbn", isbns.get(i)).field("result", results.get(i).toString()).endObject();
+        }
+        sendJson(exchange, borrowed ? 200 : 409, json.endArray().endObject());
+    }
+
+    private void returnBook(HttpExchange exchange) throws IOException {
+        User caller = requireUser(exchange);
+        Map<String, Object> body = readBody(exchange);
+        User borrower = borrowerFor(caller, optionalString(body, "email"));
+        String isbn = requireString(body, "isbn").toUpperCase();
+        String date = optionalString(body, "returnDate");
+        LocalDate returnDate = date == null ? LocalDate.now() : parseDate(date);
+
+        BulkReturnSummary summary = new BulkReturnSummary();
+        if (!transactionService.returnBook(borrower.getEmail(), isbn, returnDate, summary)) {
+            throw new ApiException(409, "No active loan of " + isbn);
+        }
+        sendJson(exchange, 200, new Json().beginObject()
+            .field("returned", true)
+            .name("fine").number(Money.format(summary.getTotalFines()))
+            .name("unpaidFines").number(Money.format(transactionService.getTotalUnpaidFines(borrower.getEmail())))
+            .endObject());
+    }
+
+    private void extend(HttpExchange exchange) throws IOException {
+        User caller = requireUser(exchange);
+        Map<String, Object> body = readBody(exchange);
+        User borrower = borrowerFor(caller, optionalString(body, "email"));
+        String isbn = requireString(body, "isbn").toUpperCase();
+        if (!transactionService.extendBookTenure(borrower.getEmail(), isbn)) {
+            throw new ApiException(409, "Not on loan, or already extended twice");
+        }
+        Json json = new Json().beginObject().field("extended", true);
+        for (BorrowingRecord record : transactionService.getCurrentBorrowedBooks(borrower.getEmail())) {
+            if (record.getIsbn().equals(isbn)) {
+                json.field("dueDate", record.getDueDate().toString()).field("extensions", record.getExtensions());
+            }
+        }
+        sendJson(exchange, 200, json.endObject());
+    }
+
+    private void payFines(HttpExchange exchange) throws IOException {
+        User caller = requireUser(exchange);
+        Map<String, Object> body = readBody(exchange);
+        User borrower = borrowerFor(caller, optionalString(body, "email"));
+        String email = borrower.getEmail();
+        if (transactionService.getTotalUnpaidFines(email) == 0) {
+            throw new ApiException(409, "No unpaid fines");
+        }
+
+        String method = optionalString(body, "method");
+        if (method == null) {
+            method = "account";
+        }
+        boolean paid;
+        if (method.equals("cash")) {
+            if (caller.getRole() != UserRole.ADMIN) {
+                throw new ApiException(403, "Cash is taken at the desk");
+            }
+            paid = transactionService.payAllUnpaidFinesWithCash(email);
+        } else if (method.equals("account")) {
+            paid = transactionService.payAllUnpaidFinesWithAccount(email, authService);
+        } else {
+            throw new ApiException(400, "method must be account or cash");
+        }
+        if (!paid) {
+            throw new ApiException(409, "Insufficient account balance");
+        }
+        sendJson(exchange, 200, new Json().beginObject()
+            .field("paid", true)
+            .name("accountBalance").number(Money.format(borrower.getAccountBalance()))
+            .endObject());
+    }
+
+    private void me(HttpExchange exchange, String path) throws IOException {
+        User caller = requireUser(exchange);
+        User user = caller;
+        String email = query(exchange).get("email");
+        if (email != null && caller.getRole() == UserRole.ADMIN) {
+            user = borrowerFor(caller, email);
+        }
+        Json json = new Json();
+        switch (path) {
+            case "/me":
+                json.beginObject()
+                    .field("email", user.getEmail())
+                    .field("name", user.getName())
+                    .field("role", user.getRole().toString())
+                    .name("securityDeposit").number(Money.format(user.getSecurityDeposit()))
+                    .name("accountBalance").number(Money.format(user.getAccountBalance()))
+                    .name("unpaidFines").number(Money.format(transactionService.getTotalUnpaidFines(user.getEmail())))
+                    .field("loans", transactionService.getCurrentBorrowedBooks(user.getEmail()).size())
+                    .endObject();
+                break;
+            case "/me/loans":
+                writeLoans(json, transactionService.getCurrentBorrowedBooks(user.getEmail()));
+                break;
+            case "/me/history":
+                writeLoans(json, transactionService.getBorrowingHistory(user.getEmail()));
+                break;
+            case "/me/fines":
+                json.beginArray();
+                for (FineRecord fine : transactionService.getFineHistory(user.getEmail())) {
+                    json.beginObject()
+                        .field("isbn", fine.getIsbn())
+                        .field("reason", fine.getReason().toString())
+                        .name("amount").number(Money.format(fine.getAmount()))
+                        .field("date", fine.getFineDate().toString())
+                        .field("paid", fine.isPaid())
+                        .endObject();
+                }
+                json.endArray();
+                break;
+            default:
+                throw new ApiException(404, "No such endpoint: GET " + PREFIX + path);
+        }
+        sendJson(exchange, 200, json);
+    }
+
+    private void report(HttpExchange exchange, String name) throws IOException {
+        User caller = requireUser(exchange);
+        if (caller.getRole() != UserRole.ADMIN) {
+            throw new ApiException(403, "Reports are for admins");
+        }
+        Map<String, String> query = query(exchange);
+        int threshold = intParameter(query, "threshold", DEFAULT_LOW_QUANTITY);
+        LocalDate date = query.get("date") == null ? LocalDate.now() : parseDate(query.get("date"));
+
+        // Through ReportService, as the console does, so the reports are timed alike
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ReportService reports = new ReportService(bookService, transactionService, authService,
+            new PrintStream(text, true, "UTF-8"));
+        switch (name) {
+            case "low-quantity":
+                reports.generateLowQuantityBooksReport(threshold);
+                break;
+            case "never-borrowed":
+                reports.generateNeverBorrowedBooksReport();
+                break;
+            case "most-borrowed":
+                reports.generateMostBorrowedBooksReport();
+                break;
+            case "outstanding":
+                reports.generateOutstandingBooksReport(date);
+                break;
+            case "all-fines":
+                reports.generateAllFinesReport();
+                break;
+            case "unpaid-fines":
+                reports.generateUnpaidFinesReport();
+                break;
+            case "nightly":
+                reports.generateNightlyReports(threshold);
+                break;
+            default:
+                throw new ApiException(404, "No such report: " + name);
+        }
+        send(exchange, 200, "text/plain; charset=utf-8", text.toByteArray());
+    }
+
+    // Requests
+
+    private User requireUser(HttpExchange exchange) {
+        String email = sessions.touch(bearerToken(exchange));
+        User user = email == null ? null : authService.getUserByEmail(email);
+        if (user == null) {
+            throw new ApiException(401, "Log in first");
+        }
+        return user;
+    }
+
+    // The caller, or for an admin the named borrower
+    private User borrowerFor(User caller, String email) {
+        User borrower = caller;
+        if (email != null && !email.equals(caller.getEmail())) {
+            if (caller.getRole() != UserRole.ADMIN) {
+                throw new ApiException(403, "Only admins act for other users");
+            }
+            borrower = authService.getUserByEmail(email);
+            if (borrower == null) {
+                throw new ApiException(404, "No user " + email);
+            }
+        }
+        if (borrower.getRole() != UserRole.BORROWER) {
+            throw new ApiException(403, "Only borrowers hold loans");
+        }
+        return borrower;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        InputStream in = exchange.getRequestBody();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+            if (bytes.size() > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body over " + MAX_BODY_BYTES + " bytes");
+            }
+        }
+        String text = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        if (text.trim().isEmpty()) {
+            return new HashMap<>();
+        }
+        Object body;
+        try {
+            body = Json.parse(text);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Bad JSON: " + e.getMessage());
+        }
+        if (!(body instanceof Map)) {
+            throw new ApiException(400, "Body must be a JSON object");
+        }
+        return (Map<String, Object>) body;
+    }
+
+    private static String requireString(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            throw new ApiException(400, "Missing " + name);
+        }
+        return ((String) value).trim();
+    }
+
+    private static String optionalString(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new ApiException(400, name + " must be a string");
+        }
+        return value == null ? null : ((String) value).trim();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+                String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+                parameters.put(name, value);
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                throw new ApiException(400, "Bad query string");
+            }
+        }
+        return parameters;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a whole number");
+        }
+    }
+
+    private static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text.trim());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Dates are YYYY-MM-DD");
+        }
+    }
+
+    // Responses
+
+    private void writeBooks(Json json, List<Book> books) {
+        json.beginArray();
+        for (Book book : books) {
+            writeBook(json, book);
+        }
+        json.endArray();
+    }
+
+    private void writeBook(Json json, Book book) {
+        json.beginObject()
+            .field("isbn", book.getIsbn())
+            .field("title", book.getTitle())
+            .field("author", book.getAuthor())
+            .field("available", book.getAvailableQuantity())
+            .name("cost").number(Money.format(book.getCost()))
+            .endObject();
+    }
+
+    private void writeLoans(Json json, List<BorrowingRecord> loans) {
+        json.beginArray();
+        for (BorrowingRecord record : loans) {
+            Book book = bookService.getBookByIsbn(record.getIsbn());
+            json.beginObject()
+                .field("isbn", record.getIsbn())
+                .field("title", book == null ? null : book.getTitle())
+                .field("borrowDate", record.getBorrowDate().toString())
+                .field("dueDate", record.getDueDate().toString())
+                .field("returnDate", record.getReturnDate() == null ? null : record.getReturnDate().toString())
+                .field("extensions", record.getExtensions())
+                .endObject();
+        }
+        json.endArray();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, new Json().beginObject().field("error", message).endObject());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Json json) throws IOException {
+        send(exchange, status, "application/json; charset=utf-8", json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package LibrarySystem.server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Login sessions, keyed by a random bearer token. A session ends at logout
+// or after it has gone unused for the idle timeout; expired ones are dropped
+// when looked up and swept every so often as new ones are made.
+class SessionStore {
+    private static final int TOKEN_BYTES = 24;
+    private static final int SWEEP_EVERY_LOGINS = 1024;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleNanos;
+    private int loginsSinceSweep = 0;
+
+    static final class Session {
+        final String email;
+        volatile long lastUsed;
+
+        Session(String email, long lastUsed) {
+            this.email = email;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    SessionStore(long idleMillis) {
+        this.idleNanos = idleMillis * 1000000L;
+    }
+
+    String open(String email) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(email, System.nanoTime()));
+        if (sweepDue()) {
+            long now = System.nanoTime();
+            sessions.values().removeIf(session -> now - session.lastUsed > idleNanos);
+        }
+        return token;
+    }
+
+    // The session's email, or null if the token is unknown or has expired
+    String touch(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - session.lastUsed > idleNanos) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastUsed = now;
+        return session.email;
+    }
+
+    void close(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private synchronized boolean sweepDue() {
+        if (++loginsSinceSweep < SWEEP_EVERY_LOGINS) {
+            return false;
+        }
+        loginsSinceSweep = 0;
+        return true;
+    }
+}
@@ -0,0 +1,159 @@
+package LibrarySystem.server;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Line-oriented TCP server for desk terminals (telnet or nc): each
+// connection gets its own session, reading lines from the socket and
+// printing back to it. Sessions run one per virtual thread where the JDK has
+// them (21+), one per platform thread otherwise, and share nothing but the
+// services behind them.
+//
+// A session that sends nothing for the idle timeout is told so and
+// disconnected. Past maxSessions, new connections are turned away.
+public class TerminalServer {
+    private static final int BACKLOG = 64;
+    private static final int SESSION_STACK_BYTES = 512 * 1024;
+
+    // One terminal's conversation, e.g. a login and the menus that follow
+    public interface Session {
+        void run(Scanner in, PrintStream out);
+    }
+
+    private final Session session;
+    private final long idleTimeoutMillis;
+    private final int maxSessions;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private volatile ServerSocket serverSocket;
+    private Thread acceptor;
+
+    public TerminalServer(Session session, long idleTimeoutMillis, int maxSessions) {
+        this.session = session;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxSessions = maxSessions;
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Already started");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address, BACKLOG);
+        acceptor = new Thread(this::acceptLoop, "terminal-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    // Stops taking connections and hangs up on every open session
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        closeQuietly(serverSocket);
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serverSocket = null;
+    }
+
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+        return socket == null ? -1 : socket.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    private void acceptLoop() {
+        ServerSocket server = serverSocket;
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Error accepting terminal connection: " + e.getMessage());
+                }
+                continue;
+            }
+            if (activeSessions.incrementAndGet() > maxSessions) {
+                activeSessions.decrementAndGet();
+                refuse(socket);
+                continue;
+            }
+            connections.add(socket);
+            startSessionThread(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, idleTimeoutMillis));
+            socket.setTcpNoDelay(true);
+            // UTF-8 both ways, the charset reports are written in
+            Scanner in = new Scanner(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintStream out = new PrintStream(socket.getOutputStream(), true, "UTF-8");
+            try {
+                session.run(in, out);
+            } catch (NoSuchElementException e) {
+                // Scanner reports a closed or silent connection as running out of input
+                if (in.ioException() instanceof SocketTimeoutException) {
+                    out.println();
+                    out.println("Idle too long; disconnecting.");
+                }
+            }
+        } catch (IOException e) {
+            // The terminal hung up
+        } catch (RuntimeException e) {
+            System.err.println("Error in terminal session from " + socket.getRemoteSocketAddress() + ": " + e);
+        } finally {
+            connections.remove(socket);
+            activeSessions.decrementAndGet();
+            closeQuietly(socket);
+        }
+    }
+
+    private void refuse(Socket socket) {
+        try {
+            PrintStream out = new PrintStream(socket.getOutputStream(), true);
+            out.println("All " + maxSessions + " terminal sessions are in use; please try again shortly.");
+        } catch (IOException e) {
+            // Gone already
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    // Thread.startVirtualThread is looked up by reflection so this builds on Java 8
+    private static void startSessionThread(Runnable task) {
+        try {
+            Method start = Thread.class.getMethod("startVirtualThread", Runnable.class);
+            start.invoke(null, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Thread thread = new Thread(null, task, "terminal-session", SESSION_STACK_BYTES);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing more to do
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package LibrarySystem.transactions;
+
+import LibrarySystem.models.SymbolTable;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+// Live borrow counters per ISBN id, plus the most borrowed titles kept in
+// rank order as borrows come in so the leaderboard is read off the top
+// instead of sorting every counter. Borrows from the last year are also
+// counted per day for the trending windows (last 7, 30 or 365 days).
+class BorrowLeaderboard {
+    public static final int MAX_WINDOW_DAYS = 365;
+
+    // Head room so a few deleted books never leave a top 10 short
+    private static final int RANKED_TITLES = 64;
+
+    private final IdIndex<AtomicLong> counts = new IdIndex<>();
+
+    // The RANKED_TITLES highest counts by rank key. Counts only grow, so a
+    // title outside the ranking can only get in by passing the lowest ranked
+    // count; every other borrow skips the lock.
+    private final TreeSet<Long> ranking = new TreeSet<>();
+    private final Map<Integer, Long> rankKeyOf = new HashMap<>();
+    private volatile long entryCount = 0;
+
+    // Epoch day -> borrows that day, only the last MAX_WINDOW_DAYS are kept
+    private final TreeMap<Long, DayCounts> days = new TreeMap<>();
+
+    public long countOf(int isbnId) {
+        AtomicLong count = counts.get(isbnId);
+        return count == null ? 0 : count.get();
+    }
+
+    public void recordBorrow(int isbnId, LocalDate borrowDate) {
+        long count = counts.computeIfAbsent(isbnId, AtomicLong::new).incrementAndGet();
+        if (count > entryCount) {
+            rank(isbnId);
+        }
+
+        long day = borrowDate.toEpochDay();
+        synchronized (days) {
+            if (!days.isEmpty() && day <= days.lastKey() - MAX_WINDOW_DAYS) {
+                return; // Older than any window
+            }
+            DayCounts dayCounts = days.get(day);
+            if (dayCounts == null) {
+                dayCounts = new DayCounts();
+                days.put(day, dayCounts);
+                days.headMap(days.lastKey() - MAX_WINDOW_DAYS, true).clear();
+            }
+            dayCounts.increment(isbnId);
+        }
+    }
+
+    // Top titles of all time, highest count first
+    public LinkedHashMap<Integer, Long> top(int limit, IntPredicate include) {
+        List<Long> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(ranking);
+        }
+        LinkedHashMap<Integer, Long> result = new LinkedHashMap<>();
+        for (long key : keys) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (include.test(idOf(key))) {
+                result.put(idOf(key), countOfKey(key));
+            }
+        }
+        if (result.size() < limit && keys.size() >= RANKED_TITLES) {
+            // Too many ranked titles filtered out; fall back to every counter
+            Map<Integer, Long> allCounts = new HashMap<>();
+            for (int isbnId = 0; isbnId < SymbolTable.ISBNS.size(); isbnId++) {
+                long count = countOf(isbnId);
+                if (count > 0) {
+                    allCounts.put(isbnId, count);
+                }
+            }
+            return topOf(allCounts, limit, include);
+        }
+        return result;
+    }
+
+    // Top titles borrowed in the windowDays days up to and including today
+    public LinkedHashMap<Integer, Long> trending(int windowDays, LocalDate today, int limit, IntPredicate include) {
+        long lastDay = today.toEpochDay();
+        Map<Integer, Long> totals = new HashMap<>();
+        synchronized (days) {
+            for (DayCounts dayCounts : days.subMap(lastDay - Math.min(windowDays, MAX_WINDOW_DAYS), false, lastDay, true).values()) {
+                dayCounts.addTo(totals);
+            }
+        }
+        return topOf(totals, limit, include);
+    }
+
+    private synchronized void rank(int isbnId) {
+        Long oldKey = rankKeyOf.remove(isbnId);
+        if (oldKey != null) {
+            ranking.remove(oldKey);
+        }
+        long key = rankKey(countOf(isbnId), isbnId);
+        ranking.add(key);
+        rankKeyOf.put(isbnId, key);
+        if (ranking.size() > RANKED_TITLES) {
+            rankKeyOf.remove(idOf(ranking.pollLast()));
+        }
+        if (ranking.size() == RANKED_TITLES) {
+            entryCount = countOfKey(ranking.last());
+        }
+    }
+
+    // Bounded heap holding the worst of the current top entries first
+    private static LinkedHashMap<Integer, Long> topOf(Map<Integer, Long> countsById, int limit, IntPredicate include) {
+        PriorityQueue<Long> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+        for (Map.Entry<Integer, Long> entry : countsById.entrySet()) {
+            if (include.test(entry.getKey())) {
+                best.offer(rankKey(entry.getValue(), entry.getKey()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<Long> keys = new ArrayList<>(best);
+        Collections.sort(keys);
+        LinkedHashMap<Integer, Long> result = new LinkedHashMap<>();
+        for (long key : keys) {
+            result.put(idOf(key), countOfKey(key));
+        }
+        return result;
+    }
+
+    // Rank keys sort by count descending, then by ISBN id
+    private static long rankKey(long count, int isbnId) {
+        return ((long) (Integer.MAX_VALUE - (int) count) << 32) | isbnId;
+    }
+
+    private static int idOf(long key) {
+        return (int) key;
+    }
+
+    private static long countOfKey(long key) {
+        return Integer.MAX_VALUE - (int) (key >>> 32);
+    }
+
+    // Open-addressing map from ISBN id to that day's borrow count
+    private static class DayCounts {
+        private static final int EMPTY = -1;
+
+        private int[] isbnIds = newTable(8);
+        private int[] borrows = new int[8];
+        private int size = 0;
+
+        void increment(int isbnId) {
+            if (2 * (size + 1) > isbnIds.length) {
+                grow();
+            }
+            int slot = slotOf(isbnIds, isbnId);
+            if (isbnIds[slot] == EMPTY) {
+                isbnIds[slot] = isbnId;
+                size++;
+            }
+            borrows[slot]++;
+        }
+
+        void addTo(Map<Integer, Long> totals) {
+            for (int slot = 0; slot < isbnIds.length; slot++) {
+                if (isbnIds[slot] != EMPTY) {
+                    totals.merge(isbnIds[slot], (long) borrows[slot], Long::sum);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldIds = isbnIds;
+            int[] oldBorrows = borrows;
+            isbnIds = newTable(oldIds.length * 2);
+            borrows = new int[oldIds.length * 2];
+            for (int slot = 0; slot < oldIds.length; slot++) {
+                if (oldIds[slot] != EMPTY) {
+                    int newSlot = slotOf(isbnIds, oldIds[slot]);
+                    isbnIds[newSlot] = oldIds[slot];
+                    borrows[newSlot] = oldBorrows[slot];
+                }
+            }
+        }
+
+        private static int slotOf(int[] table, int isbnId) {
+            int mask = table.length - 1;
+            int hash = isbnId * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (table[slot] != EMPTY && table[slot] != isbnId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int[] newTable(int capacity) {
+            int[] table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+    }
+}
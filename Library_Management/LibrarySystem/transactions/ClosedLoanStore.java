@@ -0,0 +1,96 @@
+package LibrarySystem.transactions;
+
+import LibrarySystem.models.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Returned (or lost) loans kept as primitive columns instead of objects.
+// A row costs 25 bytes: SymbolTable borrower and ISBN ids, three epoch days,
+// the extension count and a link to the borrower's previous row. Rows are
+// only turned back into BorrowingRecord objects when history is read.
+// Returns from different desks append concurrently, so access is synchronized.
+class ClosedLoanStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_ROW = -1;
+
+    private int size = 0;
+    private int[] borrowerIds = new int[INITIAL_CAPACITY];
+    private int[] isbnIds = new int[INITIAL_CAPACITY];
+    private int[] borrowDays = new int[INITIAL_CAPACITY];
+    private int[] dueDays = new int[INITIAL_CAPACITY];
+    private int[] returnDays = new int[INITIAL_CAPACITY];
+    private byte[] extensions = new byte[INITIAL_CAPACITY];
+    private int[] previousRowOfBorrower = new int[INITIAL_CAPACITY];
+
+    private int[] lastRowOfBorrower = new int[0];
+
+    public synchronized void add(BorrowingRecord record) {
+        ensureCapacity(size + 1);
+        int borrowerId = record.getBorrowerId();
+        ensureBorrower(borrowerId);
+        borrowerIds[size] = borrowerId;
+        isbnIds[size] = record.getIsbnId();
+        borrowDays[size] = (int) record.getBorrowDate().toEpochDay();
+        dueDays[size] = (int) record.getDueDate().toEpochDay();
+        returnDays[size] = (int) record.getReturnDate().toEpochDay();
+        extensions[size] = (byte) record.getExtensions();
+        previousRowOfBorrower[size] = lastRowOfBorrower[borrowerId];
+        lastRowOfBorrower[borrowerId] = size;
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized String getBorrowerEmail(int row) { return SymbolTable.EMAILS.nameOf(borrowerIds[row]); }
+    public synchronized String getIsbn(int row) { return SymbolTable.ISBNS.nameOf(isbnIds[row]); }
+    public synchronized LocalDate getBorrowDate(int row) { return LocalDate.ofEpochDay(borrowDays[row]); }
+    public synchronized LocalDate getDueDate(int row) { return LocalDate.ofEpochDay(dueDays[row]); }
+    public synchronized LocalDate getReturnDate(int row) { return LocalDate.ofEpochDay(returnDays[row]); }
+    public synchronized int getExtensions(int row) { return extensions[row]; }
+
+    public synchronized BorrowingRecord get(int row) {
+        BorrowingRecord record = new BorrowingRecord(borrowerIds[row], isbnIds[row],
+            getBorrowDate(row), getDueDate(row));
+        record.setReturnDate(getReturnDate(row));
+        record.setExtensions(extensions[row]);
+        return record;
+    }
+
+    // Closed loans of one borrower, newest row first
+    public synchronized List<BorrowingRecord> getByBorrower(String borrowerEmail) {
+        List<BorrowingRecord> result = new ArrayList<>();
+        int borrowerId = SymbolTable.EMAILS.find(borrowerEmail);
+        if (borrowerId < 0 || borrowerId >= lastRowOfBorrower.length) {
+            return result;
+        }
+        for (int row = lastRowOfBorrower[borrowerId]; row != NO_ROW; row = previousRowOfBorrower[row]) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    private void ensureBorrower(int borrowerId) {
+        if (borrowerId < lastRowOfBorrower.length) {
+            return;
+        }
+        int oldLength = lastRowOfBorrower.length;
+        lastRowOfBorrower = Arrays.copyOf(lastRowOfBorrower, Math.max(borrowerId + 1, oldLength * 2));
+        Arrays.fill(lastRowOfBorrower, oldLength, lastRowOfBorrower.length, NO_ROW);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= borrowerIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, borrowerIds.length + (borrowerIds.length >> 1));
+        borrowerIds = Arrays.copyOf(borrowerIds, newCapacity);
+        isbnIds = Arrays.copyOf(isbnIds, newCapacity);
+        borrowDays = Arrays.copyOf(borrowDays, newCapacity);
+        dueDays = Arrays.copyOf(dueDays, newCapacity);
+        returnDays = Arrays.copyOf(returnDays, newCapacity);
+        extensions = Arrays.copyOf(extensions, newCapacity);
+        previousRowOfBorrower = Arrays.copyOf(previousRowOfBorrower, newCapacity);
+    }
+}
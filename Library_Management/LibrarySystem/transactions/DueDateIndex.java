@@ -0,0 +1,56 @@
+package LibrarySystem.transactions;
+
+import LibrarySystem.models.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Active loans bucketed by due date (epoch day), so "overdue as of X" only
+// reads the buckets before X and costs the size of the answer, not the
+// number of loans out. Desks update it concurrently, so access is synchronized.
+class DueDateIndex {
+    private final TreeMap<Long, Set<BorrowingRecord>> loansByDueDay = new TreeMap<>();
+
+    public synchronized void add(BorrowingRecord record) {
+        long dueDay = record.getDueDate().toEpochDay();
+        Set<BorrowingRecord> loans = loansByDueDay.get(dueDay);
+        if (loans == null) {
+            loans = new LinkedHashSet<>();
+            loansByDueDay.put(dueDay, loans);
+        }
+        loans.add(record);
+    }
+
+    public synchronized void remove(BorrowingRecord record) {
+        long dueDay = record.getDueDate().toEpochDay();
+        Set<BorrowingRecord> loans = loansByDueDay.get(dueDay);
+        if (loans != null && loans.remove(record) && loans.isEmpty()) {
+            loansByDueDay.remove(dueDay);
+        }
+    }
+
+    // Moves the loan to its new due date in one step
+    public synchronized void reschedule(BorrowingRecord record, LocalDate dueDate) {
+        remove(record);
+        record.setDueDate(dueDate);
+        add(record);
+    }
+
+    // Loans due on a day in [from, to), oldest due date first
+    public synchronized List<BorrowingRecord> dueBetween(LocalDate from, LocalDate to) {
+        List<BorrowingRecord> result = new ArrayList<>();
+        if (from.isBefore(to)) {
+            for (Set<BorrowingRecord> loans : loansByDueDay.subMap(from.toEpochDay(), true, to.toEpochDay(), false).values()) {
+                result.addAll(loans);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<BorrowingRecord> dueBefore(LocalDate date) {
+        List<BorrowingRecord> result = new ArrayList<>();
+        for (Set<BorrowingRecord> loans : loansByDueDay.headMap(date.toEpochDay(), false).values()) {
+            result.addAll(loans);
+        }
+        return result;
+    }
+}
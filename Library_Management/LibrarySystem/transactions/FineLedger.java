@@ -0,0 +1,65 @@
+package LibrarySystem.transactions;
+
+import LibrarySystem.models.*;
+import java.util.*;
+import java.time.LocalDate;
+
+// Fines of a single borrower with a running unpaid total.
+// Synchronized so reports can read a ledger while a desk is charging or paying.
+class FineLedger {
+    private List<FineRecord> fines = new ArrayList<>();
+    private List<FineRecord> unpaidFines = new ArrayList<>();
+    private long unpaidTotal = 0; // Paise
+
+    public synchronized void addFine(FineRecord fine) {
+        fines.add(fine);
+        if (!fine.isPaid()) {
+            unpaidFines.add(fine);
+            unpaidTotal += fine.getAmount();
+        }
+    }
+
+    public synchronized boolean markPaid(FineRecord fine) {
+        if (!unpaidFines.remove(fine)) {
+            return false;
+        }
+        fine.setPaid(true);
+        unpaidTotal -= fine.getAmount();
+        return true;
+    }
+
+    public synchronized void markAllPaid() {
+        for (FineRecord fine : unpaidFines) {
+            fine.setPaid(true);
+        }
+        unpaidFines.clear();
+        unpaidTotal = 0;
+    }
+
+    public synchronized FineRecord findUnpaid(String isbn, FineReason reason) {
+        int isbnId = SymbolTable.ISBNS.find(isbn);
+        for (FineRecord fine : unpaidFines) {
+            if (fine.getIsbnId() == isbnId && fine.getReason() == reason) {
+                return fine;
+            }
+        }
+        return null;
+    }
+
+    public synchronized FineRecord findUnpaid(String isbn, FineReason reason, long amount, LocalDate fineDate) {
+        int isbnId = SymbolTable.ISBNS.find(isbn);
+        for (FineRecord fine : unpaidFines) {
+            if (fine.getIsbnId() == isbnId && fine.getReason() == reason &&
+                fine.getAmount() == amount && fine.getFineDate().equals(fineDate)) {
+                return fine;
+            }
+        }
+        return null;
+    }
+
+    // Copies, safe to hold while the ledger keeps changing
+    public synchronized List<FineRecord> getFines() { return new ArrayList<>(fines); }
+    public synchronized List<FineRecord> getUnpaidFines() { return new ArrayList<>(unpaidFines); }
+    public synchronized long getUnpaidTotal() { return unpaidTotal; }
+    public synchronized boolean hasUnpaidFines() { return !unpaidFines.isEmpty(); }
+}
@@ -0,0 +1,48 @@
+package LibrarySystem.transactions;
+
+import LibrarySystem.models.Money;
+
+// Overdue fine rule: Rs. 2 per day, doubled for every full 10 days overdue,
+// capped at 80% of the book's cost. Amounts are paise. Uncapped fines for
+// the first SCHEDULE_DAYS days are precomputed; later ones are one shift,
+// which saturates instead of overflowing once it is past any possible cap.
+public final class FineSchedule {
+    private static final long RATE_PER_DAY = Money.ofRupees(2);
+    private static final int DAYS_PER_DOUBLING = 10;
+    private static final int CAP_PERCENT_OF_COST = 80;
+    private static final int SCHEDULE_DAYS = 512;
+
+    // Uncapped fine by days overdue
+    private static final long[] SCHEDULE = new long[SCHEDULE_DAYS];
+
+    static {
+        for (int days = 0; days < SCHEDULE_DAYS; days++) {
+            SCHEDULE[days] = uncapped(days);
+        }
+    }
+
+    private FineSchedule() {
+    }
+
+    public static long overdueFine(long daysOverdue, long bookCost) {
+        if (daysOverdue <= 0) {
+            return 0;
+        }
+        long maxFine = Money.percentOf(bookCost, CAP_PERCENT_OF_COST);
+        long fine = daysOverdue < SCHEDULE_DAYS ? SCHEDULE[(int) daysOverdue] : uncapped(daysOverdue);
+        return Math.min(fine, maxFine);
+    }
+
+    private static long uncapped(long daysOverdue) {
+        if (daysOverdue > Long.MAX_VALUE / RATE_PER_DAY) {
+            return Long.MAX_VALUE;
+        }
+        long base = daysOverdue * RATE_PER_DAY;
+        long periods = daysOverdue / DAYS_PER_DOUBLING;
+        // Shifting into the sign bit would overflow
+        if (periods >= Long.numberOfLeadingZeros(base) - 1) {
+            return Long.MAX_VALUE;
+        }
+        return base << periods;
+    }
+}
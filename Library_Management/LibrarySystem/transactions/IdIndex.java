@@ -0,0 +1,60 @@
+package LibrarySystem.transactions;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Array-backed map from dense SymbolTable ids to values.
+// Reads are lock-free; writes are synchronized so a resize cannot lose one.
+class IdIndex<T> {
+    private volatile AtomicReferenceArray<T> values = new AtomicReferenceArray<>(256);
+
+    public T get(int id) {
+        AtomicReferenceArray<T> current = values;
+        return id >= 0 && id < current.length() ? current.get(id) : null;
+    }
+
+    public T computeIfAbsent(int id, Supplier<T> supplier) {
+        T value = get(id);
+        if (value != null) {
+            return value;
+        }
+        synchronized (this) {
+            value = get(id);
+            if (value == null) {
+                value = supplier.get();
+                put(id, value);
+            }
+            return value;
+        }
+    }
+
+    public synchronized void put(int id, T value) {
+        AtomicReferenceArray<T> current = values;
+        if (id >= current.length()) {
+            AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(Math.max(id + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            values = current = grown;
+        }
+        current.set(id, value);
+    }
+
+    public synchronized void remove(int id) {
+        AtomicReferenceArray<T> current = values;
+        if (id >= 0 && id < current.length()) {
+            current.set(id, null);
+        }
+    }
+
+    public void forEach(Consumer<? super T> action) {
+        AtomicReferenceArray<T> snapshot = values;
+        for (int i = 0; i < snapshot.length(); i++) {
+            T value = snapshot.get(i);
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+    }
+}
@@ -2,28 +2,95 @@ package LibrarySystem.transactions;
 
 import LibrarySystem.models.*;
 import LibrarySystem.books.BookService;
+import LibrarySystem.metrics.*;
+import LibrarySystem.persistence.*;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.io.*;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 
+// Safe for several desks at once. A change holds the lock stripe of its
+// borrower (loan limit, duplicate and fine checks); copies are taken and put
+// back with BookService.reserveCopy/releaseCopy, which are lock-free except
+// for briefly locking that title's entry in the quantity-sorted view. Desks
+// serving different borrowers never wait on each other's checks.
 public class TransactionService {
-    private static final String BORROWING_FILE = "borrowing.txt";
-    private static final String FINES_FILE = "fines.txt";
+    public static final String BORROWING_FILE = "borrowing.txt";
+    public static final String FINES_FILE = "fines.txt";
+    private static final int BORROWER_LOCK_STRIPES = 64;
+    
+    // A refused borrow, return or payment counts as a failure
+    private static final OperationMetrics BORROW_METRICS = Metrics.operation("transactions.borrowBookWithChecks");
+    private static final OperationMetrics BORROW_BATCH_METRICS = Metrics.operation("transactions.borrowBatch");
+    private static final OperationMetrics RETURN_METRICS = Metrics.operation("transactions.returnBook");
+    private static final OperationMetrics RETURN_BATCH_METRICS = Metrics.operation("transactions.returnBooks");
+    private static final OperationMetrics EXTEND_METRICS = Metrics.operation("transactions.extendBookTenure");
+    private static final OperationMetrics PAY_ALL_METRICS = Metrics.operation("transactions.payAllUnpaidFines");
     
-    private List<BorrowingRecord> borrowingRecords;
-    private List<FineRecord> fineRecords;
     private BookService bookService;
+    private Journal journal;
+    private Lock changeLock = new ReentrantReadWriteLock().readLock();
+    private final Lock[] borrowerLocks;
+    
+    // Only active loans are kept as objects; returned ones live in columnar storage
+    private ClosedLoanStore closedLoans;
+    
+    // Per-borrower index so desk lookups only touch that borrower's loans.
+    // Lists are copy-on-write (a borrower holds at most a few books) and stay
+    // in the index once created, so readers never need a lock.
+    private IdIndex<List<BorrowingRecord>> activeLoansByBorrower;
+    
+    // Per-ISBN index for status checks, live borrow counters and rankings
+    private IdIndex<List<BorrowingRecord>> activeLoansByIsbn;
+    private BorrowLeaderboard leaderboard;
+    
+    // Active loans by due date for overdue lookups and the daily sweep
+    private DueDateIndex dueDates;
+    private LocalDate lastOverdueSweep;
+    
+    // Per-borrower fine ledgers with running unpaid totals
+    private IdIndex<FineLedger> fineLedgers;
     
     public TransactionService(BookService bookService) {
+        this(bookService, readBorrowingRecords(), readFineRecords());
+    }
+    
+    public TransactionService(BookService bookService, List<BorrowingRecord> loadedBorrowingRecords, List<FineRecord> loadedFineRecords) {
         this.bookService = bookService;
-        this.borrowingRecords = new ArrayList<>();
-        this.fineRecords = new ArrayList<>();
-        loadBorrowingRecords();
-        loadFineRecords();
+        this.borrowerLocks = new Lock[BORROWER_LOCK_STRIPES];
+        for (int i = 0; i < borrowerLocks.length; i++) {
+            borrowerLocks[i] = new ReentrantLock();
+        }
+        this.closedLoans = new ClosedLoanStore();
+        this.activeLoansByBorrower = new IdIndex<>();
+        this.activeLoansByIsbn = new IdIndex<>();
+        this.leaderboard = new BorrowLeaderboard();
+        this.dueDates = new DueDateIndex();
+        this.fineLedgers = new IdIndex<>();
+        for (BorrowingRecord record : loadedBorrowingRecords) {
+            addBorrowingRecord(record);
+        }
+        for (FineRecord record : loadedFineRecords) {
+            addFineRecord(record);
+        }
     }
     
     public BorrowResult borrowBookWithChecks(String borrowerEmail, String isbn, LibrarySystem.auth.AuthService authService) {
+        long started = BORROW_METRICS.start();
+        BorrowResult result = null;
+        try {
+            result = withBorrowerLocked(borrowerEmail, () -> borrowWithChecksLocked(borrowerEmail, isbn));
+            return result;
+        } finally {
+            BORROW_METRICS.finish(started, result == BorrowResult.SUCCESS);
+        }
+    }
+    
+    private BorrowResult borrowWithChecksLocked(String borrowerEmail, String isbn) {
         List<BorrowingRecord> currentBorrowedBooks = getCurrentBorrowedBooks(borrowerEmail);
         
         // Check if user already has 3 books
@@ -38,32 +105,27 @@ public class TransactionService {
         }
         
         // Check if user already borrowed this book
+        int isbnId = SymbolTable.ISBNS.find(isbn);
         for (BorrowingRecord record : currentBorrowedBooks) {
-            if (record.getIsbn().equals(isbn)) {
+            if (record.getIsbnId() == isbnId) {
                 return BorrowResult.ALREADY_BORROWED;
             }
         }
         
         // Check for unpaid fines
-        double unpaidFines = getTotalUnpaidFines(borrowerEmail);
+        long unpaidFines = getTotalUnpaidFines(borrowerEmail);
         if (unpaidFines > 0) {
             return BorrowResult.HAS_UNPAID_FINES;
         }
         
-        // Create borrowing record
-        LocalDate borrowDate = LocalDate.now();
-        LocalDate dueDate = borrowDate.plusDays(15);
-        
-        BorrowingRecord record = new BorrowingRecord(borrowerEmail, isbn, borrowDate, dueDate);
-        borrowingRecords.add(record);
-        
-        // Update book quantity
-        book.setAvailableQuantity(book.getAvailableQuantity() - 1);
-        
-        return BorrowResult.SUCCESS;
+        return takeCopy(book, borrowerEmail) ? BorrowResult.SUCCESS : BorrowResult.BOOK_NOT_AVAILABLE;
     }
     
     public boolean borrowBook(String borrowerEmail, String isbn) {
+        return withBorrowerLocked(borrowerEmail, () -> borrowLocked(borrowerEmail, isbn));
+    }
+    
+    private boolean borrowLocked(String borrowerEmail, String isbn) {
         List<BorrowingRecord> currentBorrowedBooks = getCurrentBorrowedBooks(borrowerEmail);
         
         // Check if user already has 3 books
@@ -78,143 +140,291 @@ public class TransactionService {
         }
         
         // Check if user already borrowed this book
+        int isbnId = SymbolTable.ISBNS.find(isbn);
         for (BorrowingRecord record : currentBorrowedBooks) {
-            if (record.getIsbn().equals(isbn)) {
+            if (record.getIsbnId() == isbnId) {
                 return false; // Already borrowed
             }
         }
         
-        // Create borrowing record
+        return takeCopy(book, borrowerEmail);
+    }
+    
+    // Borrows a whole cart or nothing. Loans and fines are checked once for the
+    // cart, and the loans are journaled as one record. Results are per ISBN, in
+    // cart order; if any book fails, the others come back CART_NOT_BORROWED.
+    public List<BorrowResult> borrowBatch(String borrowerEmail, List<String> isbns) {
+        long started = BORROW_BATCH_METRICS.start();
+        List<BorrowResult> results = null;
+        try {
+            results = withBorrowerLocked(borrowerEmail, () -> borrowBatchLocked(borrowerEmail, isbns));
+            return results;
+        } finally {
+            BORROW_BATCH_METRICS.finish(started, results != null && Collections.frequency(results, BorrowResult.SUCCESS) == results.size());
+        }
+    }
+    
+    private List<BorrowResult> borrowBatchLocked(String borrowerEmail, List<String> isbns) {
+        List<BorrowResult> results = new ArrayList<>(isbns.size());
+        if (getTotalUnpaidFines(borrowerEmail) > 0) {
+            for (int i = 0; i < isbns.size(); i++) {
+                results.add(BorrowResult.HAS_UNPAID_FINES);
+            }
+            return results;
+        }
+        
+        List<BorrowingRecord> currentBorrowedBooks = getCurrentBorrowedBooks(borrowerEmail);
+        Set<String> heldIsbns = new HashSet<>();
+        for (BorrowingRecord record : currentBorrowedBooks) {
+            heldIsbns.add(record.getIsbn());
+        }
+        int slotsLeft = 3 - currentBorrowedBooks.size();
+        
+        // Same checks, in the same order, as a single borrow
+        List<Book> books = new ArrayList<>(isbns.size());
+        boolean allValid = true;
+        for (String isbn : isbns) {
+            Book book = bookService.getBookByIsbn(isbn);
+            BorrowResult result = BorrowResult.SUCCESS;
+            if (slotsLeft <= 0) {
+                result = BorrowResult.MAX_BOOKS_REACHED;
+            } else if (book == null || book.getAvailableQuantity() <= 0) {
+                result = BorrowResult.BOOK_NOT_AVAILABLE;
+            } else if (!heldIsbns.add(isbn)) {
+                result = BorrowResult.ALREADY_BORROWED; // Held already, or twice in the cart
+            } else {
+                slotsLeft--;
+            }
+            allValid &= result == BorrowResult.SUCCESS;
+            results.add(result);
+            books.add(book);
+        }
+        
+        // Reserve every copy, putting back what was taken if one runs out
+        int reserved = 0;
+        while (allValid && reserved < books.size()) {
+            if (bookService.reserveCopy(books.get(reserved))) {
+                reserved++;
+            } else {
+                results.set(reserved, BorrowResult.BOOK_NOT_AVAILABLE);
+                allValid = false;
+            }
+        }
+        if (!allValid) {
+            for (int i = 0; i < reserved; i++) {
+                bookService.releaseCopy(books.get(i));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) == BorrowResult.SUCCESS) {
+                    results.set(i, BorrowResult.CART_NOT_BORROWED);
+                }
+            }
+            return results;
+        }
+        
         LocalDate borrowDate = LocalDate.now();
         LocalDate dueDate = borrowDate.plusDays(15);
+        String[] fields = new String[3 + books.size()];
+        fields[0] = borrowerEmail;
+        fields[1] = borrowDate.toString();
+        fields[2] = dueDate.toString();
+        for (int i = 0; i < books.size(); i++) {
+            String isbn = books.get(i).getIsbn();
+            addBorrowingRecord(new BorrowingRecord(borrowerEmail, isbn, borrowDate, dueDate));
+            fields[3 + i] = isbn;
+        }
+        if (!books.isEmpty()) {
+            journal(JournalEventType.BORROW_BATCH, fields);
+        }
+        return results;
+    }
+    
+    // The earlier stock check was only a fast path; the reservation decides
+    private boolean takeCopy(Book book, String borrowerEmail) {
+        if (!bookService.reserveCopy(book)) {
+            return false;
+        }
         
-        BorrowingRecord record = new BorrowingRecord(borrowerEmail, isbn, borrowDate, dueDate);
-        borrowingRecords.add(record);
-        
-        // Update book quantity
-        book.setAvailableQuantity(book.getAvailableQuantity() - 1);
+        // Create borrowing record
+        LocalDate borrowDate = LocalDate.now();
+        LocalDate dueDate = borrowDate.plusDays(15);
         
+        addBorrowingRecord(new BorrowingRecord(borrowerEmail, book.getIsbn(), borrowDate, dueDate));
+        journal(JournalEventType.BORROW, borrowerEmail, book.getIsbn(), borrowDate.toString(), dueDate.toString());
         return true;
     }
     
     public boolean returnBook(String borrowerEmail, String isbn, LocalDate returnDate) {
-        BorrowingRecord record = null;
-        
-        // Find the borrowing record
-        for (BorrowingRecord br : borrowingRecords) {
-            if (br.getBorrowerEmail().equals(borrowerEmail) && 
-                br.getIsbn().equals(isbn) && br.getReturnDate() == null) {
-                record = br;
-                break;
-            }
+        return returnBook(borrowerEmail, isbn, returnDate, null);
+    }
+    
+    // Any overdue fine raised is also added to the summary, if one is given
+    public boolean returnBook(String borrowerEmail, String isbn, LocalDate returnDate, BulkReturnSummary summary) {
+        long started = RETURN_METRICS.start();
+        boolean returned = false;
+        try {
+            returned = withBorrowerLocked(borrowerEmail, () -> returnLocked(borrowerEmail, isbn, returnDate, summary));
+            return returned;
+        } finally {
+            RETURN_METRICS.finish(started, returned);
         }
+    }
+    
+    private boolean returnLocked(String borrowerEmail, String isbn, LocalDate returnDate) {
+        return returnLocked(borrowerEmail, isbn, returnDate, null);
+    }
+    
+    // Overdue fines raised are also added to the summary, if one is given
+    private boolean returnLocked(String borrowerEmail, String isbn, LocalDate returnDate, BulkReturnSummary summary) {
+        // Mark as returned and put the copy back on the shelf
+        BorrowingRecord record = applyReturn(borrowerEmail, isbn, returnDate);
         
         if (record == null) {
             return false; // No active borrowing record found
         }
+        journal(JournalEventType.RETURN, borrowerEmail, isbn, returnDate.toString());
         
-        // Mark as returned
-        record.setReturnDate(returnDate);
-        
-        // Update book quantity
         Book book = bookService.getBookByIsbn(isbn);
-        if (book != null) {
-            book.setAvailableQuantity(book.getAvailableQuantity() + 1);
-        }
         
         // Calculate fine if overdue
         long daysOverdue = ChronoUnit.DAYS.between(record.getDueDate(), returnDate);
         if (daysOverdue > 0) {
-            double fine = calculateOverdueFine(daysOverdue, book.getCost());
+            long fine = FineSchedule.overdueFine(daysOverdue, book.getCost());
             FineRecord fineRecord = new FineRecord(
                 borrowerEmail, isbn, fine, FineReason.OVERDUE, LocalDate.now()
             );
-            fineRecords.add(fineRecord);
+            recordFine(fineRecord);
+            if (summary != null) {
+                summary.addFine(fineRecord);
+            }
             return true; // Book returned but with fine
         }
         
         return true; // Book returned without fine
     }
     
+    // Processes a return bin in one pass. Returns are grouped by borrower so
+    // each borrower's lock is taken once, a book listed twice is only returned
+    // once, and the journal is forced to disk once at the end.
+    public BulkReturnSummary returnBooks(List<ReturnRequest> requests) {
+        long started = RETURN_BATCH_METRICS.start();
+        boolean completed = false;
+        try {
+            BulkReturnSummary summary = returnBooksTimed(requests);
+            completed = true;
+            return summary;
+        } finally {
+            RETURN_BATCH_METRICS.finish(started, completed);
+        }
+    }
+    
+    private BulkReturnSummary returnBooksTimed(List<ReturnRequest> requests) {
+        Map<String, List<ReturnRequest>> requestsByBorrower = new LinkedHashMap<>();
+        for (ReturnRequest request : requests) {
+            requestsByBorrower.computeIfAbsent(request.getBorrowerEmail(), email -> new ArrayList<>()).add(request);
+        }
+        
+        BulkReturnSummary summary = new BulkReturnSummary();
+        for (Map.Entry<String, List<ReturnRequest>> entry : requestsByBorrower.entrySet()) {
+            String borrowerEmail = entry.getKey();
+            withBorrowerLocked(borrowerEmail, () -> {
+                Set<String> seenIsbns = new HashSet<>();
+                for (ReturnRequest request : entry.getValue()) {
+                    if (seenIsbns.add(request.getIsbn()) &&
+                        returnLocked(borrowerEmail, request.getIsbn(), request.getReturnDate(), summary)) {
+                        summary.addReturned(request);
+                    } else {
+                        summary.addUnmatched(request);
+                    }
+                }
+                return null;
+            });
+        }
+        if (journal != null) {
+            journal.sync();
+        }
+        return summary;
+    }
+    
     public boolean extendBookTenure(String borrowerEmail, String isbn) {
-        BorrowingRecord record = null;
-        
-        // Find the borrowing record
-        for (BorrowingRecord br : borrowingRecords) {
-            if (br.getBorrowerEmail().equals(borrowerEmail) && 
-                br.getIsbn().equals(isbn) && br.getReturnDate() == null) {
-                record = br;
-                break;
-            }
+        long started = EXTEND_METRICS.start();
+        boolean extended = false;
+        try {
+            extended = withBorrowerLocked(borrowerEmail, () -> extendLocked(borrowerEmail, isbn));
+            return extended;
+        } finally {
+            EXTEND_METRICS.finish(started, extended);
         }
+    }
+    
+    private boolean extendLocked(String borrowerEmail, String isbn) {
+        BorrowingRecord record = findActiveRecord(borrowerEmail, isbn);
         
         if (record == null || record.getExtensions() >= 2) {
             return false; // No record found or max extensions reached
         }
         
-        record.setDueDate(record.getDueDate().plusDays(15));
+        dueDates.reschedule(record, record.getDueDate().plusDays(15));
         record.setExtensions(record.getExtensions() + 1);
+        journal(JournalEventType.EXTEND, borrowerEmail, isbn);
         return true;
     }
     
     public void reportLostBook(String borrowerEmail, String isbn) {
-        // Find and mark the borrowing record as returned (lost)
-        for (BorrowingRecord record : borrowingRecords) {
-            if (record.getBorrowerEmail().equals(borrowerEmail) && 
-                record.getIsbn().equals(isbn) && record.getReturnDate() == null) {
-                record.setReturnDate(LocalDate.now());
-                break;
-            }
+        withBorrowerLocked(borrowerEmail, () -> {
+            reportLostBookLocked(borrowerEmail, isbn);
+            return null;
+        });
+    }
+    
+    private void reportLostBookLocked(String borrowerEmail, String isbn) {
+        // Find and mark the borrowing record as returned (lost).
+        // The copy reserved at borrow time stays reserved; it never comes back.
+        BorrowingRecord record = findActiveRecord(borrowerEmail, isbn);
+        if (record != null) {
+            LocalDate lostDate = LocalDate.now();
+            closeRecord(record, lostDate);
+            journal(JournalEventType.LOST_BOOK, borrowerEmail, isbn, lostDate.toString());
         }
         
         // Add fine for lost book
         Book book = bookService.getBookByIsbn(isbn);
         if (book != null) {
-            double fine = book.getCost() * 0.5; // 50% of book cost
+            long fine = Money.percentOf(book.getCost(), 50); // 50% of book cost
             FineRecord fineRecord = new FineRecord(
                 borrowerEmail, isbn, fine, FineReason.LOST_BOOK, LocalDate.now()
             );
-            fineRecords.add(fineRecord);
+            recordFine(fineRecord);
         }
     }
     
     public void reportLostCard(String borrowerEmail) {
-        double fine = 10.0; // Rs. 10 for lost card
+        long fine = Money.ofRupees(10); // Rs. 10 for lost card
         FineRecord fineRecord = new FineRecord(
             borrowerEmail, "CARD", fine, FineReason.LOST_CARD, LocalDate.now()
         );
-        fineRecords.add(fineRecord);
+        withBorrowerLocked(borrowerEmail, () -> {
+            recordFine(fineRecord);
+            return null;
+        });
     }
     
     public List<BorrowingRecord> getCurrentBorrowedBooks(String borrowerEmail) {
-        List<BorrowingRecord> result = new ArrayList<>();
-        for (BorrowingRecord record : borrowingRecords) {
-            if (record.getBorrowerEmail().equals(borrowerEmail) && record.getReturnDate() == null) {
-                result.add(record);
-            }
-        }
-        return result;
+        List<BorrowingRecord> activeLoans = activeLoansByBorrower.get(SymbolTable.EMAILS.find(borrowerEmail));
+        return activeLoans == null ? new ArrayList<>() : new ArrayList<>(activeLoans);
     }
     
     public List<BorrowingRecord> getBorrowingHistory(String borrowerEmail) {
-        List<BorrowingRecord> result = new ArrayList<>();
-        for (BorrowingRecord record : borrowingRecords) {
-            if (record.getBorrowerEmail().equals(borrowerEmail)) {
-                result.add(record);
-            }
-        }
+        List<BorrowingRecord> result = closedLoans.getByBorrower(borrowerEmail);
+        result.addAll(getCurrentBorrowedBooks(borrowerEmail));
         // Sort by borrow date (newest first)
         result.sort((r1, r2) -> r2.getBorrowDate().compareTo(r1.getBorrowDate()));
         return result;
     }
     
     public List<FineRecord> getFineHistory(String borrowerEmail) {
-        List<FineRecord> result = new ArrayList<>();
-        for (FineRecord fine : fineRecords) {
-            if (fine.getBorrowerEmail().equals(borrowerEmail)) {
-                result.add(fine);
-            }
-        }
+        FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(borrowerEmail));
+        List<FineRecord> result = ledger == null ? new ArrayList<>() : ledger.getFines();
         // Sort by date (newest first)
         result.sort((f1, f2) -> f2.getFineDate().compareTo(f1.getFineDate()));
         return result;
@@ -222,226 +432,462 @@ public class TransactionService {
     
     public List<FineRecord> getAllUnpaidFines() {
         List<FineRecord> result = new ArrayList<>();
-        for (FineRecord fine : fineRecords) {
-            if (!fine.isPaid()) {
-                result.add(fine);
-            }
-        }
+        fineLedgers.forEach(ledger -> result.addAll(ledger.getUnpaidFines()));
         result.sort((f1, f2) -> f2.getFineDate().compareTo(f1.getFineDate()));
         return result;
     }
     
+    // Active loans due before checkDate, most overdue first
     public List<BorrowingRecord> getOutstandingBooks(LocalDate checkDate) {
-        List<BorrowingRecord> result = new ArrayList<>();
-        for (BorrowingRecord record : borrowingRecords) {
-            if (record.getReturnDate() == null && record.getDueDate().isBefore(checkDate)) {
-                result.add(record);
+        return dueDates.dueBefore(checkDate);
+    }
+    
+    // Fines the overdue active loans would owe if returned on asOf, most
+    // overdue first; loans of deleted books are left out
+    public LinkedHashMap<BorrowingRecord, Long> getAccruedFines(LocalDate asOf) {
+        LinkedHashMap<BorrowingRecord, Long> result = new LinkedHashMap<>();
+        for (BorrowingRecord record : dueDates.dueBefore(asOf)) {
+            Book book = bookService.getBookByIsbn(record.getIsbn());
+            if (book != null) {
+                long daysOverdue = asOf.toEpochDay() - record.getDueDate().toEpochDay();
+                result.put(record, FineSchedule.overdueFine(daysOverdue, book.getCost()));
             }
         }
         return result;
     }
     
+    // Loans that fell overdue since the previous sweep; the first sweep
+    // returns the ones that fell overdue today. Meant to run once a day.
+    public synchronized List<BorrowingRecord> sweepNewlyOverdue(LocalDate today) {
+        LocalDate from = lastOverdueSweep != null ? lastOverdueSweep : today.minusDays(1);
+        if (!today.isAfter(from)) {
+            return new ArrayList<>();
+        }
+        lastOverdueSweep = today;
+        return dueDates.dueBetween(from, today);
+    }
+    
     public BorrowingRecord getCurrentBorrowingRecord(String isbn) {
-        for (BorrowingRecord record : borrowingRecords) {
-            if (record.getIsbn().equals(isbn) && record.getReturnDate() == null) {
+        List<BorrowingRecord> activeLoans = activeLoansByIsbn.get(SymbolTable.ISBNS.find(isbn));
+        if (activeLoans != null) {
+            for (BorrowingRecord record : activeLoans) {
                 return record;
             }
         }
         return null;
     }
     
-    public Map<String, Long> getMostBorrowedBooks() {
-        Map<String, Long> borrowCounts = new HashMap<>();
-        for (BorrowingRecord record : borrowingRecords) {
-            borrowCounts.merge(record.getIsbn(), 1L, Long::sum);
-        }
-        return borrowCounts;
+    public List<BorrowingRecord> getCurrentBorrowingRecords(String isbn) {
+        List<BorrowingRecord> activeLoans = activeLoansByIsbn.get(SymbolTable.ISBNS.find(isbn));
+        return activeLoans == null ? new ArrayList<>() : new ArrayList<>(activeLoans);
+    }
+    
+    public long getBorrowCount(String isbn) {
+        return leaderboard.countOf(SymbolTable.ISBNS.find(isbn));
+    }
+    
+    // Most borrowed books still in the catalog, highest count first
+    public LinkedHashMap<String, Long> getMostBorrowedBooks(int limit) {
+        return toIsbns(leaderboard.top(limit, this::inCatalog));
+    }
+    
+    // Most borrowed books over the last windowDays days (at most a year)
+    public LinkedHashMap<String, Long> getTrendingBooks(int windowDays, LocalDate today, int limit) {
+        return toIsbns(leaderboard.trending(windowDays, today, limit, this::inCatalog));
+    }
+    
+    // Streaming view for the report engine; nothing is copied or sorted
+    public void forEachFine(Consumer<FineRecord> action) {
+        fineLedgers.forEach(ledger -> {
+            for (FineRecord fine : ledger.getFines()) {
+                action.accept(fine);
+            }
+        });
     }
     
     public Set<String> getNeverBorrowedBooks() {
-        Set<String> borrowedIsbns = new HashSet<>();
-        for (BorrowingRecord record : borrowingRecords) {
-            borrowedIsbns.add(record.getIsbn());
-        }
-        
         Set<String> neverBorrowed = new HashSet<>();
         for (Book book : bookService.getAllBooks()) {
-            if (!borrowedIsbns.contains(book.getIsbn())) {
+            if (getBorrowCount(book.getIsbn()) == 0) {
                 neverBorrowed.add(book.getIsbn());
             }
         }
         return neverBorrowed;
     }
     
-    private double calculateOverdueFine(long daysOverdue, double bookCost) {
-        double fine = daysOverdue * 2.0; // Rs. 2 per day
-        
-        // Exponential increase for every 10 days
-        long periods = daysOverdue / 10;
-        for (int i = 0; i < periods; i++) {
-            fine *= 2;
+    private void applyBorrow(String borrowerEmail, String isbn, LocalDate borrowDate, LocalDate dueDate) {
+        addBorrowingRecord(new BorrowingRecord(borrowerEmail, isbn, borrowDate, dueDate));
+        Book book = bookService.getBookByIsbn(isbn);
+        if (book != null) {
+            bookService.reserveCopy(book);
         }
+    }
+    
+    private BorrowingRecord applyReturn(String borrowerEmail, String isbn, LocalDate returnDate) {
+        BorrowingRecord record = findActiveRecord(borrowerEmail, isbn);
+        if (record == null) {
+            return null;
+        }
+        closeRecord(record, returnDate);
         
-        // Cap at 80% of book cost
-        double maxFine = bookCost * 0.8;
-        return Math.min(fine, maxFine);
-    }
-    
-    public void saveData() {
-        saveBorrowingRecords();
-        saveFineRecords();
-    }
-    
-    private void loadBorrowingRecords() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(BORROWING_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 4) {
-                    BorrowingRecord record = new BorrowingRecord(
-                        parts[0], parts[1], 
-                        LocalDate.parse(parts[2]), 
-                        LocalDate.parse(parts[3])
-                    );
-                    if (parts.length > 4 && !parts[4].equals("null")) {
-                        record.setReturnDate(LocalDate.parse(parts[4]));
-                    }
-                    if (parts.length > 5) {
-                        record.setExtensions(Integer.parseInt(parts[5]));
-                    }
-                    borrowingRecords.add(record);
+        Book book = bookService.getBookByIsbn(isbn);
+        if (book != null) {
+            bookService.releaseCopy(book);
+        }
+        return record;
+    }
+    
+    private void applyExtend(String borrowerEmail, String isbn) {
+        BorrowingRecord record = findActiveRecord(borrowerEmail, isbn);
+        if (record != null) {
+            dueDates.reschedule(record, record.getDueDate().plusDays(15));
+            record.setExtensions(record.getExtensions() + 1);
+        }
+    }
+    
+    // Index maintenance
+    private void addBorrowingRecord(BorrowingRecord record) {
+        leaderboard.recordBorrow(record.getIsbnId(), record.getBorrowDate());
+        if (record.getReturnDate() == null) {
+            activeLoansByBorrower.computeIfAbsent(record.getBorrowerId(), CopyOnWriteArrayList::new).add(record);
+            activeLoansByIsbn.computeIfAbsent(record.getIsbnId(), CopyOnWriteArrayList::new).add(record);
+            dueDates.add(record);
+        } else {
+            closedLoans.add(record);
+        }
+    }
+    
+    private void closeRecord(BorrowingRecord record, LocalDate returnDate) {
+        record.setReturnDate(returnDate);
+        List<BorrowingRecord> activeLoans = activeLoansByBorrower.get(record.getBorrowerId());
+        if (activeLoans != null) {
+            activeLoans.remove(record);
+        }
+        activeLoans = activeLoansByIsbn.get(record.getIsbnId());
+        if (activeLoans != null) {
+            activeLoans.remove(record);
+        }
+        dueDates.remove(record);
+        closedLoans.add(record);
+    }
+    
+    private BorrowingRecord findActiveRecord(String borrowerEmail, String isbn) {
+        List<BorrowingRecord> activeLoans = activeLoansByBorrower.get(SymbolTable.EMAILS.find(borrowerEmail));
+        if (activeLoans != null) {
+            int isbnId = SymbolTable.ISBNS.find(isbn);
+            for (BorrowingRecord record : activeLoans) {
+                if (record.getIsbnId() == isbnId) {
+                    return record;
                 }
             }
+        }
+        return null;
+    }
+    
+    public boolean saveData() {
+        boolean borrowingSaved = saveBorrowingRecords();
+        boolean finesSaved = saveFineRecords();
+        return borrowingSaved && finesSaved;
+    }
+    
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+        this.changeLock = journal.changeLock();
+    }
+    
+    public void applyJournalEvent(JournalEventType type, String[] fields) {
+        switch (type) {
+            case BORROW:
+                applyBorrow(fields[0], fields[1], LocalDate.parse(fields[2]), LocalDate.parse(fields[3]));
+                break;
+            case BORROW_BATCH:
+                for (int i = 3; i < fields.length; i++) {
+                    applyBorrow(fields[0], fields[i], LocalDate.parse(fields[1]), LocalDate.parse(fields[2]));
+                }
+                break;
+            case RETURN:
+                applyReturn(fields[0], fields[1], LocalDate.parse(fields[2]));
+                break;
+            case EXTEND:
+                applyExtend(fields[0], fields[1]);
+                break;
+            case LOST_BOOK:
+                BorrowingRecord record = findActiveRecord(fields[0], fields[1]);
+                if (record != null) {
+                    closeRecord(record, LocalDate.parse(fields[2]));
+                }
+                break;
+            case FINE:
+                addFineRecord(parseFineRecord(fields));
+                break;
+            case FINE_PAID:
+                FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(fields[0]));
+                if (ledger != null) {
+                    FineRecord fine = ledger.findUnpaid(fields[1], FineReason.valueOf(fields[2]),
+                        Money.parse(fields[3]), LocalDate.parse(fields[4]));
+                    if (fine != null) {
+                        ledger.markPaid(fine);
+                    }
+                }
+                break;
+            case ALL_FINES_PAID:
+                ledger = fineLedgers.get(SymbolTable.EMAILS.find(fields[0]));
+                if (ledger != null) {
+                    ledger.markAllPaid();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    
+    public static List<BorrowingRecord> readBorrowingRecords() {
+        try {
+            return DelimitedFileReader.read(BORROWING_FILE, row -> {
+                if (row.fieldCount() < 4) {
+                    return null;
+                }
+                BorrowingRecord record = new BorrowingRecord(
+                    row.text(0), row.text(1), row.date(2), row.date(3)
+                );
+                if (row.fieldCount() > 4 && !row.isNull(4)) {
+                    record.setReturnDate(row.date(4));
+                }
+                if (row.fieldCount() > 5) {
+                    record.setExtensions(row.intValue(5));
+                }
+                return record;
+            });
         } catch (IOException e) {
-            // File doesn't exist yet, which is fine for first run
+            System.err.println("Error loading borrowing records: " + e.getMessage());
+            return new ArrayList<>();
         }
     }
     
-    private void saveBorrowingRecords() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(BORROWING_FILE))) {
-            for (BorrowingRecord record : borrowingRecords) {
-                writer.println(record.getBorrowerEmail() + "|" + record.getIsbn() + "|" + 
-                    record.getBorrowDate() + "|" + record.getDueDate() + "|" + 
-                    record.getReturnDate() + "|" + record.getExtensions());
+    // A book drop list: isbn|borrowerEmail|returnDate per line. Without a
+    // date the book counts as returned today.
+    public static List<ReturnRequest> readReturnRequests(String file) throws IOException {
+        LocalDate today = LocalDate.now();
+        return DelimitedFileReader.read(file, row -> {
+            if (row.fieldCount() < 2) {
+                return null;
             }
+            LocalDate returnDate = row.fieldCount() > 2 && !row.text(2).trim().isEmpty() ? row.date(2) : today;
+            return new ReturnRequest(row.text(0).trim(), row.text(1).trim(), returnDate);
+        });
+    }
+    
+    private boolean saveBorrowingRecords() {
+        try {
+            SnapshotFiles.stage(BORROWING_FILE, writer -> {
+                for (int row = 0; row < closedLoans.size(); row++) {
+                    writer.println(closedLoans.getBorrowerEmail(row) + "|" + closedLoans.getIsbn(row) + "|" + 
+                        closedLoans.getBorrowDate(row) + "|" + closedLoans.getDueDate(row) + "|" + 
+                        closedLoans.getReturnDate(row) + "|" + closedLoans.getExtensions(row));
+                }
+                activeLoansByBorrower.forEach(activeLoans -> {
+                    for (BorrowingRecord record : activeLoans) {
+                        writer.println(record.getBorrowerEmail() + "|" + record.getIsbn() + "|" + 
+                            record.getBorrowDate() + "|" + record.getDueDate() + "|" + 
+                            record.getReturnDate() + "|" + record.getExtensions());
+                    }
+                });
+            });
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving borrowing records: " + e.getMessage());
+            return false;
         }
     }
     
-    private void loadFineRecords() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FINES_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length == 6) {
-                    FineRecord record = new FineRecord(
-                        parts[0], parts[1], Double.parseDouble(parts[2]), 
-                        FineReason.valueOf(parts[3]), LocalDate.parse(parts[4])
-                    );
-                    record.setPaid(Boolean.parseBoolean(parts[5]));
-                    fineRecords.add(record);
+    public static List<FineRecord> readFineRecords() {
+        try {
+            return DelimitedFileReader.read(FINES_FILE, row -> {
+                if (row.fieldCount() != 6) {
+                    return null;
                 }
-            }
+                FineRecord record = new FineRecord(
+                    row.text(0), row.text(1), row.moneyValue(2), 
+                    FineReason.valueOf(row.text(3)), row.date(4)
+                );
+                record.setPaid(row.booleanValue(5));
+                return record;
+            });
         } catch (IOException e) {
-            // File doesn't exist yet, which is fine for first run
+            System.err.println("Error loading fine records: " + e.getMessage());
+            return new ArrayList<>();
         }
     }
     
-    private void saveFineRecords() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(FINES_FILE))) {
-            for (FineRecord record : fineRecords) {
-                writer.println(record.getBorrowerEmail() + "|" + record.getIsbn() + "|" + 
-                    record.getAmount() + "|" + record.getReason() + "|" + 
-                    record.getFineDate() + "|" + record.isPaid());
-            }
+    private FineRecord parseFineRecord(String[] parts) {
+        return new FineRecord(
+            parts[0], parts[1], Money.parse(parts[2]), 
+            FineReason.valueOf(parts[3]), LocalDate.parse(parts[4])
+        );
+    }
+    
+    private boolean saveFineRecords() {
+        try {
+            SnapshotFiles.stage(FINES_FILE, writer -> {
+                for (FineRecord record : getAllFineRecords()) {
+                    writer.println(record.getBorrowerEmail() + "|" + record.getIsbn() + "|" + 
+                        Money.format(record.getAmount()) + "|" + record.getReason() + "|" + 
+                        record.getFineDate() + "|" + record.isPaid());
+                }
+            });
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving fine records: " + e.getMessage());
+            return false;
         }
     }
     
+    // Grouped by borrower
     public List<FineRecord> getAllFineRecords() {
-        return fineRecords;
+        List<FineRecord> result = new ArrayList<>();
+        fineLedgers.forEach(ledger -> result.addAll(ledger.getFines()));
+        return result;
     }
     
     // Payment Methods
     public boolean payFineWithCash(String borrowerEmail, String isbn, FineReason reason) {
-        FineRecord fine = findUnpaidFine(borrowerEmail, isbn, reason);
-        if (fine != null) {
-            fine.setPaid(true);
-            return true;
-        }
-        return false;
+        return withBorrowerLocked(borrowerEmail, () -> {
+            FineRecord fine = findUnpaidFine(borrowerEmail, isbn, reason);
+            return fine != null && markFinePaidLocked(fine);
+        });
     }
     
     public boolean payFineWithAccount(String borrowerEmail, String isbn, FineReason reason, LibrarySystem.auth.AuthService authService) {
+        return withBorrowerLocked(borrowerEmail, () -> payFineWithAccountLocked(borrowerEmail, isbn, reason, authService));
+    }
+    
+    private boolean payFineWithAccountLocked(String borrowerEmail, String isbn, FineReason reason, LibrarySystem.auth.AuthService authService) {
         FineRecord fine = findUnpaidFine(borrowerEmail, isbn, reason);
         if (fine != null) {
             LibrarySystem.models.User user = authService.getUserByEmail(borrowerEmail);
             if (user != null && user.deductFromAccountBalance(fine.getAmount())) {
-                fine.setPaid(true);
-                return true;
+                authService.updateUser(user);
+                return markFinePaidLocked(fine);
             }
         }
         return false;
     }
     
     public boolean payAllUnpaidFinesWithCash(String borrowerEmail) {
-        List<FineRecord> unpaidFines = new ArrayList<>();
-        for (FineRecord fine : fineRecords) {
-            if (fine.getBorrowerEmail().equals(borrowerEmail) && !fine.isPaid()) {
-                unpaidFines.add(fine);
-            }
+        long started = PAY_ALL_METRICS.start();
+        boolean paid = false;
+        try {
+            paid = withBorrowerLocked(borrowerEmail, () -> payAllWithCashLocked(borrowerEmail));
+            return paid;
+        } finally {
+            PAY_ALL_METRICS.finish(started, paid);
         }
-        
-        for (FineRecord fine : unpaidFines) {
-            fine.setPaid(true);
+    }
+    
+    private boolean payAllWithCashLocked(String borrowerEmail) {
+        FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(borrowerEmail));
+        if (ledger == null || !ledger.hasUnpaidFines()) {
+            return false;
         }
-        return !unpaidFines.isEmpty();
+        ledger.markAllPaid();
+        journal(JournalEventType.ALL_FINES_PAID, borrowerEmail);
+        return true;
     }
     
     public boolean payAllUnpaidFinesWithAccount(String borrowerEmail, LibrarySystem.auth.AuthService authService) {
-        List<FineRecord> unpaidFines = new ArrayList<>();
-        double totalAmount = 0;
-        
-        for (FineRecord fine : fineRecords) {
-            if (fine.getBorrowerEmail().equals(borrowerEmail) && !fine.isPaid()) {
-                unpaidFines.add(fine);
-                totalAmount += fine.getAmount();
-            }
+        long started = PAY_ALL_METRICS.start();
+        boolean paid = false;
+        try {
+            paid = withBorrowerLocked(borrowerEmail, () -> payAllWithAccountLocked(borrowerEmail, authService));
+            return paid;
+        } finally {
+            PAY_ALL_METRICS.finish(started, paid);
         }
-        
-        if (unpaidFines.isEmpty()) return false;
+    }
+    
+    private boolean payAllWithAccountLocked(String borrowerEmail, LibrarySystem.auth.AuthService authService) {
+        FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(borrowerEmail));
+        if (ledger == null || !ledger.hasUnpaidFines()) return false;
         
         LibrarySystem.models.User user = authService.getUserByEmail(borrowerEmail);
-        if (user != null && user.deductFromAccountBalance(totalAmount)) {
-            for (FineRecord fine : unpaidFines) {
-                fine.setPaid(true);
-            }
+        if (user != null && user.deductFromAccountBalance(ledger.getUnpaidTotal())) {
+            authService.updateUser(user);
+            ledger.markAllPaid();
+            journal(JournalEventType.ALL_FINES_PAID, borrowerEmail);
             return true;
         }
         return false;
     }
     
-    public double getTotalUnpaidFines(String borrowerEmail) {
-        double total = 0;
-        for (FineRecord fine : fineRecords) {
-            if (fine.getBorrowerEmail().equals(borrowerEmail) && !fine.isPaid()) {
-                total += fine.getAmount();
-            }
+    public boolean markFinePaid(FineRecord fine) {
+        return withBorrowerLocked(fine.getBorrowerEmail(), () -> markFinePaidLocked(fine));
+    }
+    
+    private boolean markFinePaidLocked(FineRecord fine) {
+        FineLedger ledger = fineLedgers.get(fine.getBorrowerId());
+        if (ledger == null || !ledger.markPaid(fine)) {
+            return false;
         }
-        return total;
+        journal(JournalEventType.FINE_PAID, fine.getBorrowerEmail(), fine.getIsbn(), fine.getReason().toString(),
+            Money.format(fine.getAmount()), fine.getFineDate().toString());
+        return true;
+    }
+    
+    public List<FineRecord> getUnpaidFines(String borrowerEmail) {
+        FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(borrowerEmail));
+        return ledger == null ? new ArrayList<>() : ledger.getUnpaidFines();
+    }
+    
+    public long getTotalUnpaidFines(String borrowerEmail) {
+        FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(borrowerEmail));
+        return ledger == null ? 0 : ledger.getUnpaidTotal();
     }
     
     private FineRecord findUnpaidFine(String borrowerEmail, String isbn, FineReason reason) {
-        for (FineRecord fine : fineRecords) {
-            if (fine.getBorrowerEmail().equals(borrowerEmail) && 
-                fine.getIsbn().equals(isbn) && 
-                fine.getReason() == reason && 
-                !fine.isPaid()) {
-                return fine;
-            }
+        FineLedger ledger = fineLedgers.get(SymbolTable.EMAILS.find(borrowerEmail));
+        return ledger == null ? null : ledger.findUnpaid(isbn, reason);
+    }
+    
+    private boolean inCatalog(int isbnId) {
+        return bookService.getBookByIsbn(SymbolTable.ISBNS.nameOf(isbnId)) != null;
+    }
+    
+    private LinkedHashMap<String, Long> toIsbns(LinkedHashMap<Integer, Long> countsByIsbnId) {
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : countsByIsbnId.entrySet()) {
+            result.put(SymbolTable.ISBNS.nameOf(entry.getKey()), entry.getValue());
         }
-        return null;
+        return result;
+    }
+    
+    // Runs a change with the borrower's lock stripe held; the journal's change
+    // lock is taken first so snapshots only see finished changes
+    private <T> T withBorrowerLocked(String borrowerEmail, Supplier<T> change) {
+        int hash = borrowerEmail.hashCode();
+        Lock borrowerLock = borrowerLocks[(hash ^ (hash >>> 16)) & (BORROWER_LOCK_STRIPES - 1)];
+        changeLock.lock();
+        borrowerLock.lock();
+        try {
+            return change.get();
+        } finally {
+            borrowerLock.unlock();
+            changeLock.unlock();
+        }
+    }
+    
+    private void recordFine(FineRecord fine) {
+        addFineRecord(fine);
+        journal(JournalEventType.FINE, fine.getBorrowerEmail(), fine.getIsbn(), Money.format(fine.getAmount()),
+            fine.getReason().toString(), fine.getFineDate().toString());
+    }
+    
+    private void journal(JournalEventType type, String... fields) {
+        if (journal != null) {
+            journal.append(type, fields);
+        }
+    }
+    
+    private void addFineRecord(FineRecord fine) {
+        fineLedgers.computeIfAbsent(fine.getBorrowerId(), FineLedger::new).addFine(fine);
     }
 }
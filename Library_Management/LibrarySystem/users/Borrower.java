@@ -14,20 +14,20 @@ public class Borrower {
     }
     
     public boolean canBorrowBooks() {
-        return user.getRole() == UserRole.BORROWER && user.getSecurityDeposit() >= 500;
+        return user.getRole() == UserRole.BORROWER && user.getSecurityDeposit() >= Money.ofRupees(500);
     }
     
-    public boolean hasEnoughDeposit(double requiredAmount) {
+    public boolean hasEnoughDeposit(long requiredAmount) {
         return user.getSecurityDeposit() >= requiredAmount;
     }
     
-    public void deductFromDeposit(double amount) {
+    public void deductFromDeposit(long amount) {
         if (user.getSecurityDeposit() >= amount) {
             user.setSecurityDeposit(user.getSecurityDeposit() - amount);
         }
     }
     
-    public void addToDeposit(double amount) {
+    public void addToDeposit(long amount) {
         user.setSecurityDeposit(user.getSecurityDeposit() + amount);
     }
 }
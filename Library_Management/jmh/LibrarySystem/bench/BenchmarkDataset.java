@@ -0,0 +1,101 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.books.BookService;
+import LibrarySystem.models.*;
+import LibrarySystem.transactions.TransactionService;
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import org.openjdk.jmh.annotations.*;
+
+// The generated dataset every benchmark runs against, loaded once per fork.
+// The data files are read from the working directory, so run the benchmarks
+// from an empty scratch directory; one already holding library data that
+// DatasetGenerator did not write is refused rather than overwritten.
+//
+// scale is the number of borrowing records (users = 1/20, books = 1/50 of that).
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+    static final long SEED = 42L;
+
+    @Param({"10k"})
+    public String scale;
+
+    List<User> users;
+    List<Book> books;
+    List<BorrowingRecord> loans;
+    List<FineRecord> fines;
+    AuthService authService;
+    BookService bookService;
+    TransactionService transactionService;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        prepare(DatasetGenerator.parseScale(scale));
+        users = AuthService.readUsers();
+        books = BookService.readBooks();
+        loans = TransactionService.readBorrowingRecords();
+        fines = TransactionService.readFineRecords();
+        authService = new AuthService(users);
+        bookService = new BookService(books);
+        transactionService = new TransactionService(bookService, loans, fines);
+    }
+
+    Random random() {
+        return new Random(SEED);
+    }
+
+    // Borrowers with no open loans and no unpaid fines, each paired with up to
+    // three titles that still have copies for them
+    List<String[]> borrowablePairs(int limit) {
+        List<String[]> pairs = new ArrayList<>();
+        int[] copiesLeft = new int[books.size()];
+        for (int i = 0; i < books.size(); i++) {
+            copiesLeft[i] = books.get(i).getAvailableQuantity();
+        }
+        int nextBook = 0;
+        for (User user : users) {
+            if (pairs.size() + 3 > limit) {
+                break;
+            }
+            String email = user.getEmail();
+            if (user.getRole() != UserRole.BORROWER || transactionService.getTotalUnpaidFines(email) > 0 ||
+                !transactionService.getCurrentBorrowedBooks(email).isEmpty()) {
+                continue;
+            }
+            for (int taken = 0, tried = 0; taken < 3 && tried < books.size(); tried++) {
+                int book = nextBook++ % books.size();
+                if (copiesLeft[book] > 0) {
+                    copiesLeft[book]--;
+                    pairs.add(new String[] {email, books.get(book).getIsbn()});
+                    taken++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    // Generates the dataset unless the working directory already holds the same one
+    private static void prepare(int loans) throws IOException {
+        Path marker = Paths.get(DatasetGenerator.MARKER_FILE);
+        if (!Files.exists(marker)) {
+            if (Files.exists(Paths.get("users.txt")) || Files.exists(Paths.get("books.txt"))) {
+                throw new IllegalStateException("Refusing to overwrite library data in " +
+                    Paths.get("").toAbsolutePath() + "; run from an empty directory.");
+            }
+        } else {
+            Properties existing = new Properties();
+            try (Reader reader = Files.newBufferedReader(marker)) {
+                existing.load(reader);
+            }
+            if (String.valueOf(loans).equals(existing.getProperty("loans")) &&
+                String.valueOf(SEED).equals(existing.getProperty("seed")) &&
+                LocalDate.now().toString().equals(existing.getProperty("today"))) {
+                return;
+            }
+        }
+        new DatasetGenerator(loans, SEED, LocalDate.now()).writeTo(Paths.get(""));
+    }
+}
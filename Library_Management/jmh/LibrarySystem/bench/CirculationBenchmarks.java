@@ -0,0 +1,96 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.metrics.Metrics;
+import LibrarySystem.models.BorrowResult;
+import LibrarySystem.transactions.TransactionService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Borrowing and returning over PAIRS distinct borrower/title pairs that are
+// all allowed to borrow. Each call covers every pair, and the untimed setup
+// before it puts the loans back the way the call expects them.
+//
+// metrics=false times the same calls with the operation metrics switched
+// off, to show what they cost.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CirculationBenchmarks {
+    static final int PAIRS = 900;
+
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private AuthService authService;
+    private TransactionService transactionService;
+    private List<String[]> pairs;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        authService = dataset.authService;
+        transactionService = dataset.transactionService;
+        pairs = dataset.borrowablePairs(PAIRS);
+        if (pairs.size() < PAIRS) {
+            throw new IllegalStateException("Only " + pairs.size() + " borrowable pairs at scale " +
+                dataset.scale + "; " + PAIRS + " are needed");
+        }
+        today = LocalDate.now();
+        Metrics.setEnabled(metrics);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Metrics.setEnabled(true);
+    }
+
+    @State(Scope.Thread)
+    public static class OnShelf {
+        @Setup(Level.Invocation)
+        public void returnAll(CirculationBenchmarks circulation) {
+            for (String[] pair : circulation.pairs) {
+                circulation.transactionService.returnBook(pair[0], pair[1], circulation.today);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OnLoan {
+        @Setup(Level.Invocation)
+        public void borrowAll(CirculationBenchmarks circulation) {
+            for (String[] pair : circulation.pairs) {
+                circulation.transactionService.borrowBookWithChecks(pair[0], pair[1], circulation.authService);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int borrowBookWithChecks(OnShelf shelf) {
+        int borrowed = 0;
+        for (String[] pair : pairs) {
+            if (transactionService.borrowBookWithChecks(pair[0], pair[1], authService) == BorrowResult.SUCCESS) {
+                borrowed++;
+            }
+        }
+        return borrowed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int returnBook(OnLoan loaned) {
+        int returned = 0;
+        for (String[] pair : pairs) {
+            if (transactionService.returnBook(pair[0], pair[1], today)) {
+                returned++;
+            }
+        }
+        return returned;
+    }
+}
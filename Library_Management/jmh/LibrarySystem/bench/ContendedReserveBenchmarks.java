@@ -0,0 +1,59 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.models.Book;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Several desks taking and putting back the last copies of one title:
+// Book's CAS against the check-then-set under the book's monitor it replaced.
+// Each thread reserves and, if it got a copy, releases it again.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ContendedReserveBenchmarks {
+    private Book book;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        book = new Book("BENCH-CONTENDED", "Contended", "Bench", 2, 0);
+    }
+
+    @Benchmark
+    public boolean cas() {
+        boolean reserved = book.tryReserve();
+        if (reserved) {
+            book.release();
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public boolean monitor() {
+        boolean reserved = monitorReserve(book);
+        if (reserved) {
+            monitorRelease(book);
+        }
+        return reserved;
+    }
+
+    // How a copy was taken before Book.tryReserve: check, then set, under the book's monitor
+    private static boolean monitorReserve(Book book) {
+        synchronized (book) {
+            if (book.getAvailableQuantity() <= 0) {
+                return false;
+            }
+            book.setAvailableQuantity(book.getAvailableQuantity() - 1);
+            return true;
+        }
+    }
+
+    private static void monitorRelease(Book book) {
+        synchronized (book) {
+            book.setAvailableQuantity(book.getAvailableQuantity() + 1);
+        }
+    }
+}
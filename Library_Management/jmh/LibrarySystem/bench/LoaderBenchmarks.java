@@ -0,0 +1,44 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.books.BookService;
+import LibrarySystem.models.*;
+import LibrarySystem.transactions.TransactionService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Startup cost: parsing each data file, and building the transaction
+// indexes from the parsed records. The readers take the dataset only so
+// that its files are in the working directory.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmarks {
+    @Benchmark
+    public List<User> readUsers(BenchmarkDataset dataset) {
+        return AuthService.readUsers();
+    }
+
+    @Benchmark
+    public List<Book> readBooks(BenchmarkDataset dataset) {
+        return BookService.readBooks();
+    }
+
+    @Benchmark
+    public List<BorrowingRecord> readBorrowingRecords(BenchmarkDataset dataset) {
+        return TransactionService.readBorrowingRecords();
+    }
+
+    @Benchmark
+    public List<FineRecord> readFineRecords(BenchmarkDataset dataset) {
+        return TransactionService.readFineRecords();
+    }
+
+    @Benchmark
+    public TransactionService newTransactionService(BenchmarkDataset dataset) {
+        return new TransactionService(new BookService(dataset.books), dataset.loans, dataset.fines);
+    }
+}
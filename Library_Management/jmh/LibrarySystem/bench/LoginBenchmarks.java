@@ -0,0 +1,59 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.auth.AuthService;
+import LibrarySystem.auth.PasswordHasher;
+import LibrarySystem.models.User;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Logins: a full PBKDF2 check at the default work factor, then a repeat
+// login inside the verification cache's TTL. Both run on one thread, so
+// 1e9 / (ns/op) is logins per second per core.
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoginBenchmarks {
+    private static final int LOGINS = 1000;
+
+    private PasswordHasher hasher;
+    private String stored;
+    private AuthService loginService;
+    private String[][] credentials;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        hasher = new PasswordHasher(PasswordHasher.DEFAULT_ITERATIONS);
+        stored = hasher.hash("pw0");
+
+        // A fresh copy of the users, as logging in rehashes their passwords
+        List<User> users = AuthService.readUsers();
+        Random random = dataset.random();
+        credentials = new String[Math.min(LOGINS, users.size())][];
+        for (int i = 0; i < credentials.length; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            credentials[i] = new String[] {user.getEmail(), user.getPassword()};
+        }
+        loginService = new AuthService(users);
+        loginService.setPasswordIterations(1000); // Keeps the first logins (hashing plaintext) quick
+        for (String[] credential : credentials) {
+            loginService.authenticate(credential[0], credential[1]);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean pbkdf2() {
+        return hasher.verify("pw0", stored);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public User cached() {
+        next = next + 1 < credentials.length ? next + 1 : 0;
+        return loginService.authenticate(credentials[next][0], credentials[next][1]);
+    }
+}
@@ -0,0 +1,93 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.books.*;
+import LibrarySystem.models.*;
+import LibrarySystem.transactions.TransactionService;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Read-only lookups: fines owed, searches, sorted catalog pages and fine accrual.
+// Each call takes the next of a fixed set of seeded random keys.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmarks {
+    private static final int KEYS = 10000;
+    private static final int PAGE_SIZE = 20;
+
+    private BookService bookService;
+    private TransactionService transactionService;
+    private Random random;
+    private String[] emails;
+    private String[] findTerms;
+    private int catalogPages;
+    private CatalogPage quantityPage;
+    private LocalDate monthEnd;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        bookService = dataset.bookService;
+        transactionService = dataset.transactionService;
+        random = dataset.random();
+        List<Book> books = dataset.books;
+        int keys = Math.min(KEYS, dataset.users.size());
+        emails = new String[keys];
+        findTerms = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            emails[i] = dataset.users.get(random.nextInt(dataset.users.size())).getEmail();
+            findTerms[i] = i % 2 == 0 ? books.get(random.nextInt(books.size())).getIsbn() :
+                DatasetGenerator.TITLE_WORDS[random.nextInt(DatasetGenerator.TITLE_WORDS.length)];
+        }
+        catalogPages = Math.max(1, books.size() / PAGE_SIZE);
+        quantityPage = bookService.getCatalogPage(CatalogOrder.QUANTITY, 1, PAGE_SIZE);
+        monthEnd = LocalDate.now().plusDays(30); // Every active loan a month from now
+    }
+
+    private int nextKey(int keys) {
+        next = next + 1 < keys ? next + 1 : 0;
+        return next;
+    }
+
+    @Benchmark
+    public long getTotalUnpaidFines() {
+        return transactionService.getTotalUnpaidFines(emails[nextKey(emails.length)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Book> searchBooksByTitle() {
+        String[] words = DatasetGenerator.TITLE_WORDS;
+        return bookService.searchBooksByTitle(words[nextKey(words.length)]);
+    }
+
+    @Benchmark
+    public Book findBook() {
+        return bookService.findBook(findTerms[nextKey(findTerms.length)]);
+    }
+
+    // Any page by number
+    @Benchmark
+    public CatalogPage catalogPageByTitle() {
+        return bookService.getCatalogPage(CatalogOrder.TITLE, 1 + random.nextInt(catalogPages), PAGE_SIZE);
+    }
+
+    // Paging onward from the previous page, starting over after the last
+    @Benchmark
+    public CatalogPage catalogNextPageByQuantity() {
+        quantityPage = quantityPage.hasNext() ? bookService.getNextPage(quantityPage) :
+            bookService.getCatalogPage(CatalogOrder.QUANTITY, 1, PAGE_SIZE);
+        return quantityPage;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<BorrowingRecord, Long> getAccruedFines() {
+        return transactionService.getAccruedFines(monthEnd);
+    }
+}
@@ -0,0 +1,62 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.transactions.FineSchedule;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The overdue fine rule itself against the doubling loop it replaced, over
+// LOANS loans per call so the per-call overhead does not swamp them
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OverdueFineBenchmarks {
+    private static final int LOANS = 100;
+
+    private long[] daysOverdue = new long[LOANS];
+    private long[] costs = new long[LOANS];
+    private double[] rupeeCosts = new double[LOANS];
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        Random random = dataset.random();
+        for (int i = 0; i < LOANS; i++) {
+            daysOverdue[i] = 1 + random.nextInt(i % 10 == 0 ? 2000 : 120);
+            costs[i] = dataset.books.get(random.nextInt(dataset.books.size())).getCost();
+            rupeeCosts[i] = costs[i] / 100.0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOANS)
+    public double loop() {
+        double total = 0;
+        for (int loan = 0; loan < LOANS; loan++) {
+            total += loopOverdueFine(daysOverdue[loan], rupeeCosts[loan]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOANS)
+    public long schedule() {
+        long total = 0;
+        for (int loan = 0; loan < LOANS; loan++) {
+            total += FineSchedule.overdueFine(daysOverdue[loan], costs[loan]);
+        }
+        return total;
+    }
+
+    // TransactionService.calculateOverdueFine before FineSchedule, in double rupees
+    private static double loopOverdueFine(long daysOverdue, double bookCost) {
+        double fine = daysOverdue * 2.0;
+        long periods = daysOverdue / 10;
+        for (int i = 0; i < periods; i++) {
+            fine *= 2;
+        }
+        return Math.min(fine, bookCost * 0.8);
+    }
+}
@@ -0,0 +1,82 @@
+package LibrarySystem.bench;
+
+import LibrarySystem.reports.ReportService;
+import java.io.*;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Every report, written to a stream that discards the text so the timings
+// leave out terminal I/O
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReportBenchmarks {
+    private ReportService reportService;
+    private String isbn;
+    private String email;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDataset dataset) {
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public void write(byte[] b, int off, int len) {}
+        });
+        reportService = new ReportService(dataset.bookService, dataset.transactionService, dataset.authService, discard);
+        isbn = dataset.books.get(0).getIsbn();
+        email = dataset.users.get(dataset.users.size() / 2).getEmail();
+        today = LocalDate.now();
+    }
+
+    @Benchmark
+    public void lowQuantityBooks() {
+        reportService.generateLowQuantityBooksReport(2);
+    }
+
+    @Benchmark
+    public void neverBorrowedBooks() {
+        reportService.generateNeverBorrowedBooksReport();
+    }
+
+    @Benchmark
+    public void mostBorrowedBooks() {
+        reportService.generateMostBorrowedBooksReport();
+    }
+
+    @Benchmark
+    public void outstandingBooks() {
+        reportService.generateOutstandingBooksReport(today);
+    }
+
+    @Benchmark
+    public void bookStatus() {
+        reportService.generateBookStatusReport(isbn);
+    }
+
+    @Benchmark
+    public void allFines() {
+        reportService.generateAllFinesReport();
+    }
+
+    @Benchmark
+    public void unpaidFines() {
+        reportService.generateUnpaidFinesReport();
+    }
+
+    @Benchmark
+    public void borrowerFineHistory() {
+        reportService.generateBorrowerFineHistory(email);
+    }
+
+    @Benchmark
+    public void borrowerBorrowingHistory() {
+        reportService.generateBorrowerBorrowingHistory(email);
+    }
+}